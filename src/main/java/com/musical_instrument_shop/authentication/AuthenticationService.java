@@ -2,7 +2,6 @@ package com.musical_instrument_shop.authentication;
 
 import com.musical_instrument_shop.dto.AuthenticationRequestDTO;
 import com.musical_instrument_shop.dto.AuthenticationResponseDTO;
-import com.musical_instrument_shop.model.User;
 import com.musical_instrument_shop.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -31,14 +30,14 @@ public class AuthenticationService {
                 new UsernamePasswordAuthenticationToken(dto.getUsername(), dto.getPassword())
         );
 
-        // If authentication succeeds, get authenticated User object from Authentication principal
-        User user = (User) authentication.getPrincipal();
+        // If authentication succeeds, get authenticated user from Authentication principal
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
 
-        // Generate JWT token with username and role info
-        String token = jwtService.generateToken(authentication.getName(), user.getRole().name());
+        // Generate JWT token with username, role and token version info
+        String token = jwtService.generateToken(authentication.getName(), user.role().name(), user.tokenVersion());
 
         // Return response DTO with user's first and last names plus the JWT token
-        return new AuthenticationResponseDTO(user.getFirstname(), user.getLastname(), token);
+        return new AuthenticationResponseDTO(user.firstname(), user.lastname(), token);
     }
 }
 
@@ -1,29 +1,87 @@
 package com.musical_instrument_shop.authentication;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.musical_instrument_shop.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 
 //This class implements the core Spring Security interface, UserDetailsService. Its single purpose
-// is to retrieve a user's entire account information (UserDetails object, which your User entity implements)
-// from the database using the provided username.
-//This is called by the AuthenticationManager during the login process to load the user and get the hashed password for comparison.
+// is to retrieve a user's entire account information (UserDetails object) from the database using the provided username.
+//This is called by the AuthenticationManager during the login process to load the user and get the hashed password for comparison,
+// and by JwtAuthenticationFilter when stateless authentication is disabled.
+//Loaded users are kept as immutable UserPrincipal copies in a bounded cache (size and time based eviction),
+// which must be invalidated whenever a user's account data or role changes.
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.user-cache-size:10000}")
+    private long cacheSize;
+
+    @Value("${app.security.user-cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    private Cache<String, UserPrincipal> userCache;
+
+    @PostConstruct
+    void init() {
+        this.userCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+        // Publishes hits, misses, evictions and load times as cache.* metrics tagged cache=userDetails
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "userDetails");
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // This method is called by Spring Security during the authentication process.
-        // It tries to find a User entity by the username provided during login.
+        // Concurrent misses for the same username share a single database lookup.
+        // Unknown usernames throw and are not cached.
+        return userCache.get(username, this::loadFromDatabase);
+    }
+
+    /**
+     * Removes a single user from the cache. Must be called after the user's account data or role changes.
+     */
+    public void evict(String username) {
+        userCache.invalidate(username);
+        log.debug("User details of user={} evicted from cache", username);
+    }
+
+    /**
+     * Removes every cached user, e.g. after bulk role changes.
+     */
+    public void evictAll() {
+        userCache.invalidateAll();
+        log.debug("User details cache cleared");
+    }
+
+    public CacheStats stats() {
+        return userCache.stats();
+    }
 
+    private UserPrincipal loadFromDatabase(String username) {
         return userRepository.findByUsername(username)    // Query the database for a user with the given username
+                .map(UserPrincipal::from)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
     }
 }
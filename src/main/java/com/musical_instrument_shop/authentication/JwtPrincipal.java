@@ -0,0 +1,26 @@
+package com.musical_instrument_shop.authentication;
+
+import java.security.Principal;
+import java.time.Instant;
+
+/**
+ * Immutable view of a JWT whose signature and expiration have already been verified.
+ * Produced once per token by JwtService.verify, so callers never need to re-parse the token.
+ * Also used directly as the authentication principal in stateless mode.
+ */
+public record JwtPrincipal(
+        String subject,
+        String role,
+        int tokenVersion,
+        Instant expiresAt
+) implements Principal {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+
+    @Override
+    public String getName() {
+        return subject;
+    }
+}
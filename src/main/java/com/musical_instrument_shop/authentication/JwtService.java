@@ -1,17 +1,28 @@
 package com.musical_instrument_shop.authentication;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.function.Function;
 
 
@@ -29,12 +40,49 @@ public class JwtService {
     @Value("${app.security.jwt-expiration}")
     private long jwtExpiration; // Token validity duration in milliseconds
 
+    @Value("${app.security.verified-token-cache-size:10000}")
+    private long verifiedTokenCacheSize; // Max number of recently verified tokens kept in memory
+
+    private Key signInKey;      // Decoded once at startup instead of on every sign/parse
+    private JwtParser jwtParser; // Immutable and thread-safe, shared by all requests
+
+    // Recently verified tokens keyed by the SHA-256 digest of the token, each entry expires together with its token
+    private Cache<String, JwtPrincipal> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey) // Set signing key to validate signature
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new Expiry<String, JwtPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), principal.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     /**
-     * Generates a JWT token containing username as subject and role as claim.
+     * Generates a JWT token containing username as subject, role and token version as claims.
      */
-    public String generateToken(String username, String role) {
+    public String generateToken(String username, String role, int tokenVersion) {
         var claims = new HashMap<String, Object>();
         claims.put("role", role);  // Add user role to the token payload
+        claims.put("ver", tokenVersion); // Add token version so revoked tokens can be rejected without a DB lookup
 
         return Jwts.builder()
                 .setIssuer("self")  // Issuer identifier (optional)
@@ -42,63 +90,80 @@ public class JwtService {
                 .setSubject(username) // Set username as the subject
                 .setIssuedAt(new Date(System.currentTimeMillis())) // Token creation time
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration)) // Expiration time
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256) // Sign token using HMAC-SHA256 and secret key
+                .signWith(signInKey, SignatureAlgorithm.HS256) // Sign token using HMAC-SHA256 and secret key
                 .compact();
     }
 
     /**
-     * Validates if the token matches the user and is not expired.
+     * Verifies the token signature and expiration once and returns its principal.
+     * Tokens verified recently are served from memory without recomputing the HMAC.
+     * Throws ExpiredJwtException / JwtException exactly like the underlying parser.
      */
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String subject = extractSubject(token);
-        return (subject.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    public JwtPrincipal verify(String token) {
+        String digest = digest(token);
+        JwtPrincipal cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return cached;
+        }
+
+        Claims claims = extractAllClaims(token); // Throws if the signature is invalid or the token is expired
+        Integer tokenVersion = claims.get("ver", Integer.class); // Tokens issued before versioning carry no claim
+        JwtPrincipal principal = new JwtPrincipal(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                tokenVersion == null ? 0 : tokenVersion,
+                claims.getExpiration().toInstant());
+        verifiedTokens.put(digest, principal);
+        return principal;
     }
 
     /**
-     * Extracts the username (subject) from the JWT token.
+     * Validates if the token matches the user and is not expired.
      */
-    public String extractSubject(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return isTokenValid(verify(token), userDetails);
     }
 
     /**
-     * Generic method to extract any claim from the token using a claims resolver function.
+     * Validates an already verified token against the loaded user.
      */
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public boolean isTokenValid(JwtPrincipal principal, UserDetails userDetails) {
+        return principal.subject().equals(userDetails.getUsername()) && !principal.isExpired(Instant.now());
     }
 
     /**
-     * Checks if the token is expired by comparing expiration date with current date.
+     * Extracts the username (subject) from the JWT token.
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String extractSubject(String token) {
+        return verify(token).subject();
     }
 
     /**
-     * Extracts expiration date from token claims.
+     * Generic method to extract any claim from the token using a claims resolver function.
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+        final Claims claims = extractAllClaims(token);
+        return claimsResolver.apply(claims);
     }
 
     /**
      * Parses the JWT token and extracts all claims.
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey()) // Set signing key to validate signature
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)          // Parses and validates the JWT signature
                 .getBody();                     // Returns the claims/payload
     }
 
     /**
-     * Decodes the base64 secret key and returns a Key object used for signing JWTs.
+     * Hashes the raw token so the cache never holds bearer tokens in memory.
      */
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
@@ -0,0 +1,76 @@
+package com.musical_instrument_shop.authentication;
+
+import com.musical_instrument_shop.core.exceptions.AppTooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+
+//Dedicated execution lane for password verification. BCrypt(12) costs hundreds of milliseconds of CPU per login,
+//so logins run on a small fixed pool with a bounded queue instead of on servlet request threads.
+//When the queue is full new logins are rejected immediately with 429, so a login burst only
+//degrades login latency and never starves catalog or checkout requests.
+@Service
+@Slf4j
+public class LoginExecutionLane {
+
+    @Value("${app.security.login.threads:0}")
+    private int threads; // 0 means half of the available cores
+
+    @Value("${app.security.login.queue-per-core:2}")
+    private int queuePerCore;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int poolSize = threads > 0 ? threads : Math.max(1, cores / 2);
+        int queueCapacity = Math.max(1, cores * queuePerCore);
+
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                loginThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Login execution lane started with threads={} queueCapacity={}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Runs the login task on the lane. Fails fast with 429 if the lane is saturated.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) throws AppTooManyRequestsException {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Login lane saturated, queued={}", executor.getQueue().size());
+            throw new AppTooManyRequestsException("Login", "Too many concurrent logins, please retry later");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static ThreadFactory loginThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "login-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
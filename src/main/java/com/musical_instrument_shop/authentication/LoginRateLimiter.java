@@ -0,0 +1,107 @@
+package com.musical_instrument_shop.authentication;
+
+import com.musical_instrument_shop.core.exceptions.AppTooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+
+
+//Cheap admission check in front of the login execution lane. Every login attempt takes one token
+//from the bucket of its username and one from the bucket of its client IP, before any BCrypt work is queued.
+//Buckets are striped: keys hash into a fixed array of buckets, so memory stays constant no matter how many
+//usernames or IPs an attacker cycles through (colliding keys simply share a budget).
+@Service
+@Slf4j
+public class LoginRateLimiter {
+
+    @Value("${app.security.login.stripes:1024}")
+    private int stripes;
+
+    @Value("${app.security.login.username-burst:5}")
+    private int usernameBurst;
+
+    @Value("${app.security.login.username-per-minute:10}")
+    private int usernamePerMinute;
+
+    @Value("${app.security.login.ip-burst:20}")
+    private int ipBurst;
+
+    @Value("${app.security.login.ip-per-minute:60}")
+    private int ipPerMinute;
+
+    private StripedTokenBuckets usernameBuckets;
+    private StripedTokenBuckets ipBuckets;
+
+    @PostConstruct
+    void init() {
+        this.usernameBuckets = new StripedTokenBuckets(stripes, usernameBurst, usernamePerMinute);
+        this.ipBuckets = new StripedTokenBuckets(stripes, ipBurst, ipPerMinute);
+    }
+
+    /**
+     * Takes a token for the username and for the client IP, or rejects the attempt with 429.
+     */
+    public void acquire(String username, String clientIp) throws AppTooManyRequestsException {
+        String usernameKey = username == null ? "" : username.toLowerCase(Locale.ROOT);
+        if (!ipBuckets.tryAcquire(clientIp == null ? "" : clientIp)) {
+            log.warn("Login rate limit exceeded for IP={}", clientIp);
+            throw new AppTooManyRequestsException("Login", "Too many login attempts from this address, please retry later");
+        }
+        if (!usernameBuckets.tryAcquire(usernameKey)) {
+            log.warn("Login rate limit exceeded for user={}", username);
+            throw new AppTooManyRequestsException("Login", "Too many login attempts for this user, please retry later");
+        }
+    }
+
+    /**
+     * Fixed-size array of token buckets. Each bucket is guarded by its own monitor, so
+     * contention is limited to keys that hash into the same stripe.
+     */
+    private static final class StripedTokenBuckets {
+
+        private final Bucket[] buckets;
+        private final int mask;
+        private final double capacity;
+        private final double tokensPerNano;
+
+        StripedTokenBuckets(int stripes, int capacity, int tokensPerMinute) {
+            int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1; // Round up to a power of two
+            this.buckets = new Bucket[size];
+            this.mask = size - 1;
+            this.capacity = capacity;
+            this.tokensPerNano = tokensPerMinute / 60_000_000_000d;
+            long now = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                buckets[i] = new Bucket(capacity, now);
+            }
+        }
+
+        boolean tryAcquire(String key) {
+            int hash = key.hashCode();
+            Bucket bucket = buckets[(hash ^ (hash >>> 16)) & mask];
+            synchronized (bucket) {
+                long now = System.nanoTime();
+                bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.lastRefill) * tokensPerNano);
+                bucket.lastRefill = now;
+                if (bucket.tokens < 1) {
+                    return false;
+                }
+                bucket.tokens -= 1;
+                return true;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill;
+
+        Bucket(double tokens, long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.musical_instrument_shop.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.musical_instrument_shop.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+
+//Keeps track of the current token version of each user, so that stateless authentication can reject revoked tokens.
+//Versions are cached for a short time, which means a request costs at most one tiny users lookup per user per TTL
+//instead of a full user load on every request. Revocations on this node take effect immediately,
+//on other nodes within the cache TTL.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TokenVersionService {
+
+    private final UserRepository userRepository;
+    private final CustomUserDetailsService userDetailsService;
+
+    @Value("${app.security.token-version-cache-ttl-seconds:30}")
+    private long cacheTtlSeconds;
+
+    @Value("${app.security.token-version-cache-size:10000}")
+    private long cacheSize;
+
+    private Cache<String, Integer> tokenVersions;
+
+    @PostConstruct
+    void init() {
+        this.tokenVersions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Returns true if the token was issued with the user's current token version.
+     * Unknown (deleted) users are never current.
+     */
+    public boolean isCurrent(JwtPrincipal principal) {
+        Integer currentVersion = tokenVersions.get(principal.subject(),
+                username -> userRepository.findTokenVersionByUsername(username).orElse(null));
+        return currentVersion != null && currentVersion == principal.tokenVersion();
+    }
+
+    /**
+     * Revokes every token issued so far to the given user.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void revokeTokens(String username) {
+        userRepository.incrementTokenVersion(username);
+        // Drop the cached version only once the new one is visible to other transactions
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tokenVersions.invalidate(username);
+                userDetailsService.evict(username);
+            }
+        });
+        log.info("Tokens of user={} revoked.", username);
+    }
+}
@@ -0,0 +1,58 @@
+package com.musical_instrument_shop.authentication;
+
+import com.musical_instrument_shop.core.enums.Role;
+import com.musical_instrument_shop.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lightweight, immutable copy of the account data Spring Security needs.
+ * Used instead of the managed User entity so that cached principals and the security context
+ * never hold a persistence context, lazy collections or Lombok-generated equals/hashCode over them.
+ */
+public record UserPrincipal(
+        Long id,
+        String username,
+        String password,
+        String firstname,
+        String lastname,
+        Role role,
+        int tokenVersion
+) implements UserDetails {
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(
+                user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getFirstname(),
+                user.getLastname(),
+                user.getRole(),
+                user.getTokenVersion());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return role == null ? List.of() : List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        // Never print the password hash
+        return "UserPrincipal[id=" + id + ", username=" + username + ", role=" + role + "]";
+    }
+}
@@ -1,27 +1,57 @@
 package com.musical_instrument_shop.controller;
 
 import com.musical_instrument_shop.authentication.AuthenticationService;
+import com.musical_instrument_shop.authentication.LoginExecutionLane;
+import com.musical_instrument_shop.authentication.LoginRateLimiter;
+import com.musical_instrument_shop.authentication.TokenVersionService;
+import com.musical_instrument_shop.core.exceptions.AppTooManyRequestsException;
 import com.musical_instrument_shop.dto.AuthenticationRequestDTO;
 import com.musical_instrument_shop.dto.AuthenticationResponseDTO;
+import com.musical_instrument_shop.dto.ResponseMessageDTO;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthRestController {
 
     private final AuthenticationService authenticationService;
+    private final TokenVersionService tokenVersionService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final LoginExecutionLane loginExecutionLane;
 
     @PostMapping("/authenticate")
-    public ResponseEntity<AuthenticationResponseDTO> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO) {
-        AuthenticationResponseDTO authenticationResponseDTO = authenticationService.authenticate(authenticationRequestDTO);
+    public CompletableFuture<ResponseEntity<AuthenticationResponseDTO>> authenticate(
+            @RequestBody AuthenticationRequestDTO authenticationRequestDTO,
+            HttpServletRequest request) throws AppTooManyRequestsException {
+
+        // Rejected attempts never reach BCrypt; accepted ones run on the login lane and free the request thread
+        loginRateLimiter.acquire(authenticationRequestDTO.getUsername(), resolveClientIp(request));
+
+        return loginExecutionLane.submit(() -> authenticationService.authenticate(authenticationRequestDTO))
+                .thenApply(authenticationResponseDTO -> new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK));
+    }
+
+    @PostMapping("/revoke")
+    public ResponseEntity<ResponseMessageDTO> revokeTokens(Authentication authentication) {
+        tokenVersionService.revokeTokens(authentication.getName());
+
+        return new ResponseEntity<>(new ResponseMessageDTO("Success", "All issued tokens revoked"), HttpStatus.OK);
+    }
 
-        return new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK);
+    // X-Forwarded-For is client-controlled, so it is never read here. Behind a reverse proxy, the remote address is
+    // rewritten from the forwarded headers only for trusted proxies (server.forward-headers-strategy=native).
+    private static String resolveClientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
     }
 }
@@ -1,10 +1,14 @@
 package com.musical_instrument_shop.controller;
 
+import com.musical_instrument_shop.core.cache.ResourceVersion;
 import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
 import com.musical_instrument_shop.core.exceptions.ValidationException;
 import com.musical_instrument_shop.core.filters.GenericFilters;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.BrandInsertDTO;
 import com.musical_instrument_shop.dto.BrandReadOnlyDTO;
 import com.musical_instrument_shop.dto.BrandUpdateDTO;
@@ -19,6 +23,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -54,11 +59,19 @@ public class BrandRestController {
     }
 
     @GetMapping
-    public ResponseEntity<Paginated<BrandReadOnlyDTO>> getAllBrands(
+    public ResponseEntity<?> getAllBrands(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            WebRequest request) throws AppObjectInvalidArgumentException {
+
+        ResourceVersion version = brandService.getBrandsVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
 
         GenericFilters filters = new GenericFilters() {};
         filters.setPage(page);
@@ -67,13 +80,30 @@ public class BrandRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (after != null) {
+            // Cursor mode: empty "after" for the first page, then the nextCursor of the previous page
+            KeysetPaginated<BrandReadOnlyDTO> brands = brandService.getBrandsAfter(after, filters.getPageable());
+            return ResponseEntity.ok(brands);
+        }
+
+        if (!withTotal) {
+            // Slice mode: no count query, only hasNext
+            SlicedPaginated<BrandReadOnlyDTO> brands = brandService.getSlicedBrands(filters.getPageable());
+            return ResponseEntity.ok(brands);
+        }
+
         Paginated<BrandReadOnlyDTO> brands = brandService.getPaginatedBrands(filters.getPageable());
         return ResponseEntity.ok(brands);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<BrandReadOnlyDTO> getBrandById(@PathVariable Long id)
+    public ResponseEntity<BrandReadOnlyDTO> getBrandById(@PathVariable Long id, WebRequest request)
             throws AppObjectNotFoundException {
+        ResourceVersion version = brandService.getBrandVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
+
         BrandReadOnlyDTO brand = brandService.getOneBrand(id);
         return ResponseEntity.ok(brand);
     }
@@ -1,10 +1,14 @@
 package com.musical_instrument_shop.controller;
 
+import com.musical_instrument_shop.core.cache.ResourceVersion;
 import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
 import com.musical_instrument_shop.core.exceptions.ValidationException;
 import com.musical_instrument_shop.core.filters.GenericFilters;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.CategoryInsertDTO;
 import com.musical_instrument_shop.dto.CategoryReadOnlyDTO;
 import com.musical_instrument_shop.dto.CategoryUpdateDTO;
@@ -19,6 +23,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -54,11 +59,19 @@ public class CategoryRestController {
     }
 
     @GetMapping
-    public ResponseEntity<Paginated<CategoryReadOnlyDTO>> getAllCategories(
+    public ResponseEntity<?> getAllCategories(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            WebRequest request) throws AppObjectInvalidArgumentException {
+
+        ResourceVersion version = categoryService.getCategoriesVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
 
         GenericFilters filters = new GenericFilters() {};
         filters.setPage(page);
@@ -67,13 +80,30 @@ public class CategoryRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (after != null) {
+            // Cursor mode: empty "after" for the first page, then the nextCursor of the previous page
+            KeysetPaginated<CategoryReadOnlyDTO> categories = categoryService.getCategoriesAfter(after, filters.getPageable());
+            return ResponseEntity.ok(categories);
+        }
+
+        if (!withTotal) {
+            // Slice mode: no count query, only hasNext
+            SlicedPaginated<CategoryReadOnlyDTO> categories = categoryService.getSlicedCategories(filters.getPageable());
+            return ResponseEntity.ok(categories);
+        }
+
         Paginated<CategoryReadOnlyDTO> categories = categoryService.getPaginatedCategories(filters.getPageable());
         return ResponseEntity.ok(categories);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CategoryReadOnlyDTO> getCategoryById(@PathVariable Long id)
+    public ResponseEntity<CategoryReadOnlyDTO> getCategoryById(@PathVariable Long id, WebRequest request)
             throws AppObjectNotFoundException {
+        ResourceVersion version = categoryService.getCategoryVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
+
         CategoryReadOnlyDTO category = categoryService.getOneCategory(id);
         return ResponseEntity.ok(category);
     }
@@ -1,15 +1,27 @@
 package com.musical_instrument_shop.controller;
 
+import com.musical_instrument_shop.core.cache.JsonResponseCache;
+import com.musical_instrument_shop.core.cache.ResourceVersion;
 import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
 import com.musical_instrument_shop.core.exceptions.ValidationException;
+import com.musical_instrument_shop.core.filters.FacetedPaginated;
 import com.musical_instrument_shop.core.filters.GenericFilters;
+import com.musical_instrument_shop.core.filters.InstrumentFilters;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.InstrumentInsertDTO;
 import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
 import com.musical_instrument_shop.dto.InstrumentUpdateDTO;
+import com.musical_instrument_shop.dto.InventoryMovementReadOnlyDTO;
 import com.musical_instrument_shop.dto.ResponseMessageDTO;
+import com.musical_instrument_shop.dto.StockAvailabilityDTO;
+import com.musical_instrument_shop.dto.SuggestionDTO;
+import com.musical_instrument_shop.service.FlashSaleService;
 import com.musical_instrument_shop.service.InstrumentService;
+import com.musical_instrument_shop.service.InventoryService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -19,9 +31,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.math.BigDecimal;
 import java.net.URI;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/instruments")
@@ -31,6 +46,9 @@ import java.net.URI;
 public class InstrumentRestController {
 
     private final InstrumentService instrumentService;
+    private final JsonResponseCache jsonResponseCache;
+    private final FlashSaleService flashSaleService;
+    private final InventoryService inventoryService;
 
     @PostMapping
     public ResponseEntity<InstrumentReadOnlyDTO> saveInstrument(
@@ -54,11 +72,19 @@ public class InstrumentRestController {
     }
 
     @GetMapping
-    public ResponseEntity<Paginated<InstrumentReadOnlyDTO>> getAllInstruments(
+    public ResponseEntity<?> getAllInstruments(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            ServletWebRequest request) throws AppObjectInvalidArgumentException {
+
+        ResourceVersion version = instrumentService.getInstrumentsVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
 
         GenericFilters filters = new GenericFilters() {};
         filters.setPage(page);
@@ -67,24 +93,58 @@ public class InstrumentRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (after != null) {
+            // Cursor mode: empty "after" for the first page, then the nextCursor of the previous page
+            KeysetPaginated<InstrumentReadOnlyDTO> instruments = instrumentService.getInstrumentsAfter(after, filters.getPageable());
+            return ResponseEntity.ok(instruments);
+        }
+
+        if (jsonResponseCache.isCachedPage(page)) {
+            // First pages are served as serialized bytes until the catalog changes
+            jsonResponseCache.write("instruments:" + withTotal + ":" + filters.getPageable(),
+                    () -> withTotal ? instrumentService.getPaginatedInstruments(filters.getPageable())
+                            : instrumentService.getSlicedInstruments(filters.getPageable()),
+                    request);
+            return null;
+        }
+
+        if (!withTotal) {
+            // Slice mode: no count query, only hasNext
+            SlicedPaginated<InstrumentReadOnlyDTO> instruments = instrumentService.getSlicedInstruments(filters.getPageable());
+            return ResponseEntity.ok(instruments);
+        }
+
         Paginated<InstrumentReadOnlyDTO> instruments = instrumentService.getPaginatedInstruments(filters.getPageable());
         return ResponseEntity.ok(instruments);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<InstrumentReadOnlyDTO> getInstrumentById(@PathVariable Long id)
+    public ResponseEntity<InstrumentReadOnlyDTO> getInstrumentById(@PathVariable Long id, ServletWebRequest request)
             throws AppObjectNotFoundException {
+        // Validators come from memory, so a repeat request is answered before the DTO is loaded
+        ResourceVersion version = instrumentService.getInstrumentVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
+
+        if (jsonResponseCache.isEnabled()) {
+            jsonResponseCache.write("instrument:" + id, () -> instrumentService.getOneInstrument(id), request);
+            return null;
+        }
+
         InstrumentReadOnlyDTO instrument = instrumentService.getOneInstrument(id);
         return ResponseEntity.ok(instrument);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Paginated<InstrumentReadOnlyDTO>> searchInstruments(
+    public ResponseEntity<?> searchInstruments(
             @RequestParam String name,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = InstrumentService.RELEVANCE) String sortBy, // Or a column to sort the LIKE search by
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
 
         GenericFilters filters = new GenericFilters() {};
         filters.setPage(page);
@@ -93,17 +153,72 @@ public class InstrumentRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (fuzzy) {
+            // Typo-tolerant mode, always ranked by relevance
+            Paginated<InstrumentReadOnlyDTO> instruments = instrumentService.fuzzySearch(name, filters.getPageable());
+            return ResponseEntity.ok(instruments);
+        }
+
+        if (!withTotal) {
+            SlicedPaginated<InstrumentReadOnlyDTO> instruments = instrumentService.searchByNameSliced(name, filters.getPageable());
+            return ResponseEntity.ok(instruments);
+        }
+
         Paginated<InstrumentReadOnlyDTO> instruments = instrumentService.searchByName(name, filters.getPageable());
         return ResponseEntity.ok(instruments);
     }
 
+    @GetMapping("/filter")
+    public ResponseEntity<FacetedPaginated<InstrumentReadOnlyDTO>> filterInstruments(
+            @RequestParam(required = false) List<Long> categoryId,
+            @RequestParam(required = false) List<Long> brandId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "ASC") String sortDirection) throws AppObjectInvalidArgumentException {
+
+        InstrumentFilters filters = new InstrumentFilters();
+        filters.setCategoryIds(categoryId);
+        filters.setBrandIds(brandId);
+        filters.setMinPrice(minPrice);
+        filters.setMaxPrice(maxPrice);
+        filters.setInStock(inStock);
+        filters.setPage(page);
+        filters.setPageSize(size);
+        filters.setSortBy(sortBy);
+        filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
+                Sort.Direction.DESC : Sort.Direction.ASC);
+
+        FacetedPaginated<InstrumentReadOnlyDTO> instruments = instrumentService.filterInstruments(filters);
+        return ResponseEntity.ok(instruments);
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<SuggestionDTO> suggestions = instrumentService.suggest(prefix, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<Paginated<InstrumentReadOnlyDTO>> getInstrumentsByCategory(
+    public ResponseEntity<?> getInstrumentsByCategory(
             @PathVariable Long categoryId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) throws AppObjectInvalidArgumentException {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            ServletWebRequest request) throws AppObjectInvalidArgumentException {
+
+        ResourceVersion version = instrumentService.getInstrumentsVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
 
         GenericFilters filters = new GenericFilters() {};
         filters.setPage(page);
@@ -112,17 +227,37 @@ public class InstrumentRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (jsonResponseCache.isCachedPage(page)) {
+            jsonResponseCache.write("instruments:category:" + categoryId + ":" + withTotal + ":" + filters.getPageable(),
+                    () -> withTotal ? instrumentService.getInstrumentsByCategory(categoryId, filters.getPageable())
+                            : instrumentService.getSlicedInstrumentsByCategory(categoryId, filters.getPageable()),
+                    request);
+            return null;
+        }
+
+        if (!withTotal) {
+            SlicedPaginated<InstrumentReadOnlyDTO> instruments = instrumentService.getSlicedInstrumentsByCategory(categoryId, filters.getPageable());
+            return ResponseEntity.ok(instruments);
+        }
+
         Paginated<InstrumentReadOnlyDTO> instruments = instrumentService.getInstrumentsByCategory(categoryId, filters.getPageable());
         return ResponseEntity.ok(instruments);
     }
 
     @GetMapping("/brand/{brandId}")
-    public ResponseEntity<Paginated<InstrumentReadOnlyDTO>> getInstrumentsByBrand(
+    public ResponseEntity<?> getInstrumentsByBrand(
             @PathVariable Long brandId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) throws AppObjectInvalidArgumentException {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            ServletWebRequest request) throws AppObjectInvalidArgumentException {
+
+        ResourceVersion version = instrumentService.getInstrumentsVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified, validators already set on the response
+        }
 
         GenericFilters filters = new GenericFilters() {};
         filters.setPage(page);
@@ -131,6 +266,19 @@ public class InstrumentRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (jsonResponseCache.isCachedPage(page)) {
+            jsonResponseCache.write("instruments:brand:" + brandId + ":" + withTotal + ":" + filters.getPageable(),
+                    () -> withTotal ? instrumentService.getInstrumentsByBrand(brandId, filters.getPageable())
+                            : instrumentService.getSlicedInstrumentsByBrand(brandId, filters.getPageable()),
+                    request);
+            return null;
+        }
+
+        if (!withTotal) {
+            SlicedPaginated<InstrumentReadOnlyDTO> instruments = instrumentService.getSlicedInstrumentsByBrand(brandId, filters.getPageable());
+            return ResponseEntity.ok(instruments);
+        }
+
         Paginated<InstrumentReadOnlyDTO> instruments = instrumentService.getInstrumentsByBrand(brandId, filters.getPageable());
         return ResponseEntity.ok(instruments);
     }
@@ -150,6 +298,43 @@ public class InstrumentRestController {
         return ResponseEntity.ok(instrumentReadOnlyDTO);
     }
 
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<StockAvailabilityDTO> getAvailability(@PathVariable Long id)
+            throws AppObjectNotFoundException {
+        StockAvailabilityDTO availability = inventoryService.getAvailability(id);
+        return ResponseEntity.ok(availability);
+    }
+
+    @GetMapping("/{id}/movements")
+    public ResponseEntity<SlicedPaginated<InventoryMovementReadOnlyDTO>> getMovements(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) throws AppObjectNotFoundException {
+
+        GenericFilters filters = new GenericFilters() {};
+        filters.setPage(page);
+        filters.setPageSize(size);
+        filters.setSortBy("id");
+        filters.setSortDirection(Sort.Direction.DESC); // Latest movements first
+
+        SlicedPaginated<InventoryMovementReadOnlyDTO> movements = inventoryService.getMovements(id, filters.getPageable());
+        return ResponseEntity.ok(movements);
+    }
+
+    @PutMapping("/{id}/flash-sale")
+    public ResponseEntity<ResponseMessageDTO> startFlashSale(@PathVariable Long id)
+            throws AppObjectNotFoundException {
+        flashSaleService.startFlashSale(id);
+        return ResponseEntity.ok(new ResponseMessageDTO("Success", "Flash sale started successfully"));
+    }
+
+    @DeleteMapping("/{id}/flash-sale")
+    public ResponseEntity<ResponseMessageDTO> endFlashSale(@PathVariable Long id)
+            throws AppObjectNotFoundException, AppServerException {
+        flashSaleService.endFlashSale(id);
+        return ResponseEntity.ok(new ResponseMessageDTO("Success", "Flash sale ended successfully"));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<ResponseMessageDTO> deleteInstrument(@PathVariable Long id)
             throws AppObjectNotFoundException {
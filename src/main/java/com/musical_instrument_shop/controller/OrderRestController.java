@@ -1,15 +1,25 @@
 package com.musical_instrument_shop.controller;
 
 import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
 import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
 import com.musical_instrument_shop.core.exceptions.ValidationException;
 import com.musical_instrument_shop.core.filters.GenericFilters;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
+import com.musical_instrument_shop.core.idempotency.IdempotencyClaim;
 import com.musical_instrument_shop.dto.OrderInsertDTO;
 import com.musical_instrument_shop.dto.OrderReadOnlyDTO;
+import com.musical_instrument_shop.dto.OrderStatusTransitionDTO;
+import com.musical_instrument_shop.dto.OrderSummaryDTO;
+import com.musical_instrument_shop.dto.OrderTransitionResultDTO;
 import com.musical_instrument_shop.dto.OrderUpdateDTO;
 import com.musical_instrument_shop.dto.ResponseMessageDTO;
+import com.musical_instrument_shop.service.FlashSaleService;
+import com.musical_instrument_shop.service.IdempotencyService;
 import com.musical_instrument_shop.service.OrderService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,6 +32,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.security.Principal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -31,34 +43,46 @@ import java.net.URI;
 public class OrderRestController {
 
     private final OrderService orderService;
+    private final FlashSaleService flashSaleService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     public ResponseEntity<OrderReadOnlyDTO> saveOrder(
             @Valid @RequestBody OrderInsertDTO dto,
-            BindingResult bindingResult)
-            throws AppObjectInvalidArgumentException, AppObjectNotFoundException, ValidationException {
+            BindingResult bindingResult,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
+            throws AppObjectInvalidArgumentException, AppObjectNotFoundException, AppObjectAlreadyExists,
+            AppServerException, ValidationException {
 
         if (bindingResult.hasErrors()) {
             throw new ValidationException(bindingResult);
         }
 
-        OrderReadOnlyDTO orderReadOnlyDTO = orderService.saveOrder(dto);
-
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentRequest()
-                .path("/{id}")
-                .buildAndExpand(orderReadOnlyDTO.id())
-                .toUri();
+        // Retries with the same key get the first response back instead of placing the order again
+        IdempotencyClaim claim = idempotencyKey != null ? idempotencyService.claim(idempotencyKey, dto) : null;
+        if (claim != null && claim.isReplay()) {
+            return created(claim.replay(), true);
+        }
 
-        return ResponseEntity.created(location).body(orderReadOnlyDTO);
+        OrderReadOnlyDTO orderReadOnlyDTO;
+        try {
+            flashSaleService.rejectSoldOut(dto.items()); // Sold-out flash-sale items fail before the database is touched
+            orderReadOnlyDTO = claim != null ? orderService.saveOrder(dto, claim) : orderService.saveOrder(dto);
+        } catch (Exception e) {
+            if (claim != null) idempotencyService.release(claim); // The client may retry with the same key
+            throw e;
+        }
+        return created(orderReadOnlyDTO, false);
     }
 
     @GetMapping
-    public ResponseEntity<Paginated<OrderReadOnlyDTO>> getAllOrders(
+    public ResponseEntity<?> getAllOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDirection) {
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal) throws AppObjectInvalidArgumentException {
 
         GenericFilters filters = new GenericFilters() {};
         filters.setPage(page);
@@ -67,6 +91,18 @@ public class OrderRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (after != null) {
+            // Cursor mode: empty "after" for the first page, then the nextCursor of the previous page
+            KeysetPaginated<OrderReadOnlyDTO> orders = orderService.getOrdersAfter(after, filters.getPageable());
+            return ResponseEntity.ok(orders);
+        }
+
+        if (!withTotal) {
+            // Slice mode: no count query, only hasNext
+            SlicedPaginated<OrderReadOnlyDTO> orders = orderService.getSlicedOrders(filters.getPageable());
+            return ResponseEntity.ok(orders);
+        }
+
         Paginated<OrderReadOnlyDTO> orders = orderService.getPaginatedOrders(filters.getPageable());
         return ResponseEntity.ok(orders);
     }
@@ -79,12 +115,13 @@ public class OrderRestController {
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Paginated<OrderReadOnlyDTO>> getOrdersByUser(
+    public ResponseEntity<?> getOrdersByUser(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDirection)
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(defaultValue = "true") boolean withTotal)
             throws AppObjectNotFoundException {
 
         GenericFilters filters = new GenericFilters() {};
@@ -94,16 +131,64 @@ public class OrderRestController {
         filters.setSortDirection(sortDirection.equalsIgnoreCase("DESC") ?
                 Sort.Direction.DESC : Sort.Direction.ASC);
 
+        if (!withTotal) {
+            SlicedPaginated<OrderReadOnlyDTO> orders = orderService.getSlicedOrdersByUser(userId, filters.getPageable());
+            return ResponseEntity.ok(orders);
+        }
+
         Paginated<OrderReadOnlyDTO> orders = orderService.getOrdersByUser(userId, filters.getPageable());
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<KeysetPaginated<OrderSummaryDTO>> getOrderHistory(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String after)
+            throws AppObjectNotFoundException, AppObjectInvalidArgumentException {
+
+        GenericFilters filters = new GenericFilters() {};
+        filters.setPageSize(size);
+
+        // Newest first; pass the nextCursor of the previous page as "after"
+        KeysetPaginated<OrderSummaryDTO> history = orderService.getOrderHistory(userId, after, filters.getPageSize());
+        return ResponseEntity.ok(history);
+    }
+
+    // Fulfilment queue: the caller leases the oldest PENDING orders and confirms them while the lease is live
+    @PostMapping("/claims")
+    public ResponseEntity<List<OrderReadOnlyDTO>> claimOrders(
+            @RequestParam(defaultValue = "10") int count,
+            Principal principal) {
+        return ResponseEntity.ok(orderService.claimOrders(principal.getName(), count));
+    }
+
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<OrderReadOnlyDTO> confirmOrder(@PathVariable Long id, Principal principal)
+            throws AppObjectNotFoundException, AppObjectInvalidArgumentException {
+        return ResponseEntity.ok(orderService.confirmOrder(id, principal.getName()));
+    }
+
+    // Moves many orders to one status; each order gets its own outcome instead of failing the whole request
+    @PutMapping("/status")
+    public ResponseEntity<List<OrderTransitionResultDTO>> transitionOrders(
+            @Valid @RequestBody OrderStatusTransitionDTO dto,
+            BindingResult bindingResult)
+            throws ValidationException {
+
+        if (bindingResult.hasErrors()) {
+            throw new ValidationException(bindingResult);
+        }
+
+        return ResponseEntity.ok(orderService.transitionOrders(dto));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<OrderReadOnlyDTO> updateOrder(
             @PathVariable Long id,
             @Valid @RequestBody OrderUpdateDTO dto,
             BindingResult bindingResult)
-            throws AppObjectNotFoundException, ValidationException {
+            throws AppObjectNotFoundException, AppObjectInvalidArgumentException, ValidationException {
 
         if (bindingResult.hasErrors()) {
             throw new ValidationException(bindingResult);
@@ -119,4 +204,16 @@ public class OrderRestController {
         orderService.deleteOrder(id);
         return ResponseEntity.ok(new ResponseMessageDTO("Success", "Order deleted successfully"));
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<OrderReadOnlyDTO> created(OrderReadOnlyDTO orderReadOnlyDTO, boolean replayed) {
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(orderReadOnlyDTO.id())
+                .toUri();
+
+        return ResponseEntity.created(location)
+                .header("Idempotent-Replayed", String.valueOf(replayed))
+                .body(orderReadOnlyDTO);
+    }
+}
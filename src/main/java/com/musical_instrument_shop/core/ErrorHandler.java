@@ -5,6 +5,7 @@ import com.musical_instrument_shop.dto.ResponseMessageDTO;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -71,6 +72,15 @@ public class ErrorHandler extends ResponseEntityExceptionHandler {
                 .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
     }
 
+    @ExceptionHandler(AppTooManyRequestsException.class)
+    public ResponseEntity<ResponseMessageDTO> handleConstraintViolationException(AppTooManyRequestsException e) {
+        log.warn("Request rejected. Message={}", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)   // 429
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
+    }
+
     @ExceptionHandler(AppServerException.class)
     public ResponseEntity<ResponseMessageDTO> handleConstraintViolationException(AppServerException e) {
         log.warn("Server error with message={}", e.getMessage());
@@ -0,0 +1,44 @@
+package com.musical_instrument_shop.core;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Pooled id generators for the tables written in bulk by a checkout. Hibernate reserves ALLOCATION_SIZE ids per
+ * sequence call, so the ids of an order, its items and its ledger rows are known before insert and the inserts
+ * are sent as JDBC batches. MySQL has no sequences; Hibernate emulates them with a one-row table per generator.
+ * Tables that had auto-increment ids get their sequence moved past the highest existing id on startup; if that
+ * fails the application does not start, since new ids would collide with existing rows.
+ */
+@Component
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory") // The sequence tables are created with the schema
+public class IdSequences {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    // Sequence table -> table it generates ids for
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "orders_seq", "orders",
+            "order_items_seq", "order_items",
+            "inventory_movements_seq", "inventory_movements");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void alignWithExistingIds() {
+        // The pooled optimizer hands out (next_val - ALLOCATION_SIZE, next_val], so next_val must clear max(id) by a whole block
+        SEQUENCES.forEach((sequence, table) -> {
+            int updated = jdbcTemplate.update("update " + sequence + " set next_val = greatest(next_val, "
+                    + "(select coalesce(max(id), 0) + " + (ALLOCATION_SIZE + 1) + " from " + table + "))");
+            if (updated != 1) {
+                throw new IllegalStateException("Id sequence " + sequence + " has " + updated + " rows, expected 1");
+            }
+        });
+    }
+}
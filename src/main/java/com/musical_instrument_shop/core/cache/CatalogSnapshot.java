@@ -0,0 +1,190 @@
+package com.musical_instrument_shop.core.cache;
+
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
+import com.musical_instrument_shop.dto.BrandReadOnlyDTO;
+import com.musical_instrument_shop.dto.CategoryReadOnlyDTO;
+import com.musical_instrument_shop.mapper.Mapper;
+import com.musical_instrument_shop.model.AbstractEntity;
+import com.musical_instrument_shop.model.Brand;
+import com.musical_instrument_shop.model.Category;
+import com.musical_instrument_shop.repository.BrandRepository;
+import com.musical_instrument_shop.repository.CategoryRepository;
+import com.musical_instrument_shop.repository.TableVersion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable in-memory copy of the brand and category tables. Reads go through a volatile reference
+ * to the current snapshot and need no lock or transaction; every brand or category write replaces the whole
+ * snapshot after commit (copy-on-write), which is cheap because both tables are tiny.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CatalogSnapshot {
+
+    private static final Map<String, Comparator<BrandReadOnlyDTO>> BRAND_SORTS = Map.of(
+            "id", Comparator.comparing(BrandReadOnlyDTO::id),
+            "name", Comparator.comparing(BrandReadOnlyDTO::name, String.CASE_INSENSITIVE_ORDER),
+            "country", Comparator.comparing(BrandReadOnlyDTO::country, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+
+    private static final Map<String, Comparator<CategoryReadOnlyDTO>> CATEGORY_SORTS = Map.of(
+            "id", Comparator.comparing(CategoryReadOnlyDTO::id),
+            "name", Comparator.comparing(CategoryReadOnlyDTO::name, String.CASE_INSENSITIVE_ORDER));
+
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final Mapper mapper;
+
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(Map<Long, BrandReadOnlyDTO> brands, List<BrandReadOnlyDTO> brandList,
+                            Map<Long, CategoryReadOnlyDTO> categories, List<CategoryReadOnlyDTO> categoryList,
+                            Map<Long, Instant> brandVersions, Map<Long, Instant> categoryVersions, Instant lastModified) {
+    }
+
+    public Optional<BrandReadOnlyDTO> brand(Long id) {
+        return Optional.ofNullable(current().brands().get(id));
+    }
+
+    public Optional<CategoryReadOnlyDTO> category(Long id) {
+        return Optional.ofNullable(current().categories().get(id));
+    }
+
+    public boolean brandExists(Long id) {
+        return current().brands().containsKey(id);
+    }
+
+    public boolean categoryExists(Long id) {
+        return current().categories().containsKey(id);
+    }
+
+    public Optional<ResourceVersion> brandVersion(Long id) {
+        return Optional.ofNullable(current().brandVersions().get(id))
+                .map(updatedAt -> new ResourceVersion("brand-" + id + "-" + updatedAt.toEpochMilli(), updatedAt));
+    }
+
+    public Optional<ResourceVersion> categoryVersion(Long id) {
+        return Optional.ofNullable(current().categoryVersions().get(id))
+                .map(updatedAt -> new ResourceVersion("category-" + id + "-" + updatedAt.toEpochMilli(), updatedAt));
+    }
+
+    /**
+     * Latest change of any brand or category. Instrument responses embed their names, so this is part of their version.
+     */
+    public Instant lastModified() {
+        return current().lastModified();
+    }
+
+    /**
+     * A page of brands, or empty if the requested sort is not on a column held in memory.
+     */
+    public Optional<Page<BrandReadOnlyDTO>> brandPage(Pageable pageable) {
+        return page(current().brandList(), pageable, BRAND_SORTS);
+    }
+
+    /**
+     * A page of categories, or empty if the requested sort is not on a column held in memory.
+     */
+    public Optional<Page<CategoryReadOnlyDTO>> categoryPage(Pageable pageable) {
+        return page(current().categoryList(), pageable, CATEGORY_SORTS);
+    }
+
+    /**
+     * Reloads if the tables hold a change this snapshot has not seen, e.g. one committed on another instance,
+     * so a listing never pairs a current version with an old body.
+     */
+    public void reloadIfBehind(TableVersion brands, TableVersion categories) {
+        Snapshot current = current();
+        boolean behind = current.brandList().size() != brands.getRowCount()
+                || current.categoryList().size() != categories.getRowCount()
+                || brands.lastModifiedAt().isAfter(current.lastModified())
+                || categories.lastModifiedAt().isAfter(current.lastModified());
+        if (behind) reload();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        current();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.target() == CatalogChangedEvent.Target.INSTRUMENT) return;
+
+        reload();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    // Serialized so that a slower reload can never overwrite the snapshot of a later write
+    private synchronized Snapshot reload() {
+        List<Brand> brandEntities = brandRepository.findAll(Sort.by("id"));
+        List<Category> categoryEntities = categoryRepository.findAll(Sort.by("id"));
+        List<BrandReadOnlyDTO> brands = brandEntities.stream().map(mapper::mapToBrandReadOnlyDTO).toList();
+        List<CategoryReadOnlyDTO> categories = categoryEntities.stream().map(mapper::mapToCategoryReadOnlyDTO).toList();
+
+        Map<Long, Instant> brandVersions = brandEntities.stream()
+                .collect(Collectors.toUnmodifiableMap(Brand::getId, CatalogSnapshot::version));
+        Map<Long, Instant> categoryVersions = categoryEntities.stream()
+                .collect(Collectors.toUnmodifiableMap(Category::getId, CatalogSnapshot::version));
+        Instant lastModified = Stream.concat(brandVersions.values().stream(), categoryVersions.values().stream())
+                .max(Comparator.naturalOrder())
+                .orElse(Instant.EPOCH);
+
+        Snapshot reloaded = new Snapshot(
+                brands.stream().collect(Collectors.toUnmodifiableMap(BrandReadOnlyDTO::id, Function.identity())), brands,
+                categories.stream().collect(Collectors.toUnmodifiableMap(CategoryReadOnlyDTO::id, Function.identity())), categories,
+                brandVersions, categoryVersions, lastModified);
+        snapshot = reloaded;
+        log.debug("Catalog snapshot reloaded with {} brands and {} categories", brands.size(), categories.size());
+        return reloaded;
+    }
+
+    // Rows written before auditing was enabled have no update time
+    private static Instant version(AbstractEntity entity) {
+        LocalDateTime changedAt = entity.getUpdatedAt() != null ? entity.getUpdatedAt() : entity.getCreatedAt();
+        return changedAt.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static <T> Optional<Page<T>> page(List<T> rows, Pageable pageable, Map<String, Comparator<T>> sorts) {
+        Comparator<T> order = null;
+        for (Sort.Order sortOrder : pageable.getSort()) {
+            Comparator<T> comparator = sorts.get(sortOrder.getProperty());
+            if (comparator == null) return Optional.empty();
+
+            comparator = sortOrder.isAscending() ? comparator : comparator.reversed();
+            order = order == null ? comparator : order.thenComparing(comparator);
+        }
+
+        List<T> sorted = order == null ? rows : rows.stream().sorted(order).toList();
+        if (pageable.isUnpaged()) return Optional.of(new PageImpl<>(sorted));
+
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return Optional.of(new PageImpl<>(sorted.subList(from, to), pageable, sorted.size()));
+    }
+}
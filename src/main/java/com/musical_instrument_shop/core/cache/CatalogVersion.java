@@ -0,0 +1,81 @@
+package com.musical_instrument_shop.core.cache;
+
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
+import com.musical_instrument_shop.repository.BrandRepository;
+import com.musical_instrument_shop.repository.CategoryRepository;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import com.musical_instrument_shop.repository.TableVersion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Versions of the catalog listings. Listing validators are read from the tables (row count and latest change),
+ * so every instance hands out the same ETag for the same data, whichever instance committed the write.
+ * current() is a local counter bumped after every committed catalog or stock change on this instance; it only
+ * retires the bodies of this instance's JsonResponseCache. Readers must take a version before reading the data it covers.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogVersion {
+
+    private final InstrumentRepository instrumentRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final CatalogSnapshot catalogSnapshot;
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Instrument listings embed brand and category names, so a change to either table moves their version too.
+     */
+    public ResourceVersion instrumentListing() {
+        return listing("instruments", instrumentRepository.findTableVersion(),
+                brandRepository.findTableVersion(), categoryRepository.findTableVersion());
+    }
+
+    public ResourceVersion brandListing() {
+        TableVersion brands = brandRepository.findTableVersion();
+        catalogSnapshot.reloadIfBehind(brands, categoryRepository.findTableVersion());
+        return listing("brands", brands);
+    }
+
+    public ResourceVersion categoryListing() {
+        TableVersion categories = categoryRepository.findTableVersion();
+        catalogSnapshot.reloadIfBehind(brandRepository.findTableVersion(), categories);
+        return listing("categories", categories);
+    }
+
+    // Runs after the other catalog listeners, so a new version is never paired with data that is still stale
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        version.updateAndGet(previous -> Math.max(previous + 1, System.currentTimeMillis()));
+    }
+
+    private static ResourceVersion listing(String resource, TableVersion... tables) {
+        StringBuilder etag = new StringBuilder(resource);
+        for (TableVersion table : tables) {
+            etag.append('-').append(table.getRowCount())
+                    .append('-').append(ChronoUnit.MICROS.between(Instant.EPOCH, table.lastModifiedAt()));
+        }
+        Instant lastModified = Stream.of(tables)
+                .map(TableVersion::lastModifiedAt)
+                .max(Comparator.naturalOrder())
+                .orElse(Instant.EPOCH);
+        return new ResourceVersion(etag.toString(), lastModified);
+    }
+}
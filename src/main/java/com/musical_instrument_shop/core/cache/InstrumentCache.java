@@ -0,0 +1,95 @@
+package com.musical_instrument_shop.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
+import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Read-through cache of instrument DTOs keyed by id, used for product page views.
+ * Caffeine's W-TinyLFU admission keeps frequently viewed instruments over one-off ones, and concurrent misses
+ * for the same id share a single database load. Entries older than the refresh interval are still served
+ * while one background reload runs, so a slow database delays freshness instead of requests.
+ * Entries are invalidated after commit by every instrument write, including stock decrements from orders.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class InstrumentCache {
+
+    private final InstrumentRepository instrumentRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cache.instruments.size:10000}")
+    private long cacheSize;
+
+    @Value("${app.cache.instruments.refresh-after-seconds:60}")
+    private long refreshAfterSeconds;
+
+    @Value("${app.cache.instruments.expire-after-seconds:600}")
+    private long expireAfterSeconds;
+
+    private LoadingCache<Long, InstrumentReadOnlyDTO> instruments;
+    private Cache<Long, Instant> versions; // updatedAt per instrument, for conditional GETs
+
+    @PostConstruct
+    void init() {
+        this.instruments = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds)) // Serve stale, reload in the background
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))   // Never serve anything older than this
+                .recordStats()
+                .build(id -> instrumentRepository.findReadOnlyById(id).orElse(null)); // Missing ids are not cached
+        // Publishes hit ratio, evictions and load durations as cache.* metrics tagged cache=instruments
+        CaffeineCacheMetrics.monitor(meterRegistry, instruments, "instruments");
+
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))
+                .build();
+    }
+
+    public Optional<InstrumentReadOnlyDTO> get(Long id) {
+        return Optional.ofNullable(instruments.get(id));
+    }
+
+    /**
+     * Last update time of the instrument, from memory or a single-column primary key lookup.
+     */
+    public Optional<Instant> updatedAt(Long id) {
+        return Optional.ofNullable(versions.get(id, key -> instrumentRepository.findVersionById(key)
+                .map(updatedAt -> updatedAt.atZone(ZoneId.systemDefault()).toInstant())
+                .orElse(null)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.target()) {
+            case INSTRUMENT -> {
+                instruments.invalidate(event.id());
+                versions.invalidate(event.id());
+            }
+            // Cached DTOs carry brand and category names; renames are rare enough to drop everything
+            case BRAND, CATEGORY -> {
+                if (event.change() != CatalogChangedEvent.Change.DELETE) instruments.invalidateAll();
+            }
+        }
+        log.debug("Instrument cache invalidated by {}", event);
+    }
+}
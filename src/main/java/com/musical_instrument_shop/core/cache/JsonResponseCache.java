@@ -0,0 +1,131 @@
+package com.musical_instrument_shop.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Optional cache of serialized catalog responses. Hot instruments and the first listing pages are kept
+ * as UTF-8 JSON bytes (and gzipped bytes) and written straight to the servlet output stream, skipping DTO mapping
+ * and Jackson on a hit. Each entry remembers the CatalogVersion it was built at and is ignored once the version
+ * has moved, so every committed instrument, brand, category or stock change retires all cached bodies at once.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonResponseCache {
+
+    private final CatalogVersion catalogVersion;
+    private final JsonMapper jsonMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cache.json.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cache.json.max-bytes:33554432}")
+    private long maxBytes;
+
+    @Value("${app.cache.json.gzip:true}")
+    private boolean gzip;
+
+    @Value("${app.cache.json.pages:3}")
+    private int pages; // Listing pages below this number are cached
+
+    private Cache<String, CachedJson> responses;
+
+    private record CachedJson(long version, byte[] json, byte[] gzipped) {
+
+        int weight() {
+            return json.length + (gzipped != null ? gzipped.length : 0);
+        }
+    }
+
+    @FunctionalInterface
+    public interface BodyLoader<E extends Exception> {
+        Object load() throws E;
+    }
+
+    @PostConstruct
+    void init() {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedJson cached) -> cached.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "json-responses");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True if the listing page should be served through the cache; deep pages are rarely repeated.
+     */
+    public boolean isCachedPage(int page) {
+        return enabled && page < pages;
+    }
+
+    /**
+     * Writes the cached body for key, or loads, serializes and caches it first. Exceptions from the loader
+     * (e.g. not found) propagate before anything is written, so the usual error handling applies.
+     */
+    public <E extends Exception> void write(String key, BodyLoader<E> loader, ServletWebRequest request) throws E {
+        long version = catalogVersion.current(); // Taken before loading, so the body is never older than its version
+
+        CachedJson cached = responses.getIfPresent(key);
+        if (cached == null || cached.version() != version) {
+            byte[] json = jsonMapper.writeValueAsBytes(loader.load());
+            cached = new CachedJson(version, json, gzip ? gzip(json) : null);
+            responses.put(key, cached);
+        }
+
+        HttpServletResponse response = request.getResponse();
+        byte[] body = cached.json();
+        if (cached.gzipped() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request.getRequest())) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = cached.gzipped();
+            }
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        try {
+            response.getOutputStream().write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
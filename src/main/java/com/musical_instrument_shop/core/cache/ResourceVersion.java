@@ -0,0 +1,13 @@
+package com.musical_instrument_shop.core.cache;
+
+import java.time.Instant;
+
+/**
+ * Validators of a GET response: a strong ETag and the Last-Modified time, computed without building the body.
+ */
+public record ResourceVersion(String etag, Instant lastModified) {
+
+    public long lastModifiedMillis() {
+        return lastModified.toEpochMilli();
+    }
+}
@@ -0,0 +1,6 @@
+package com.musical_instrument_shop.core.enums;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
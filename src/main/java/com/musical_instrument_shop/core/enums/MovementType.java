@@ -0,0 +1,8 @@
+package com.musical_instrument_shop.core.enums;
+
+public enum MovementType {
+    ORDER_RESERVATION,
+    ORDER_CANCELLATION,
+    RESTOCK,
+    ADJUSTMENT
+}
@@ -0,0 +1,9 @@
+package com.musical_instrument_shop.core.enums;
+
+public enum TransitionOutcome {
+    UPDATED,
+    UNCHANGED,
+    NOT_FOUND,
+    INVALID_TRANSITION,
+    FAILED
+}
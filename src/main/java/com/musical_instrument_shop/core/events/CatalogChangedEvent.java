@@ -0,0 +1,25 @@
+package com.musical_instrument_shop.core.events;
+
+/**
+ * Published by the catalog services whenever an instrument, brand or category is written.
+ * In-memory read models (search index, caches) listen for it after the transaction commits,
+ * so they never see changes that were rolled back.
+ */
+public record CatalogChangedEvent(Target target, Change change, Long id) {
+
+    public enum Target { INSTRUMENT, BRAND, CATEGORY }
+
+    public enum Change { UPSERT, STOCK, DELETE } // STOCK: only the instrument's stock changed (orders)
+
+    public static CatalogChangedEvent upserted(Target target, Long id) {
+        return new CatalogChangedEvent(target, Change.UPSERT, id);
+    }
+
+    public static CatalogChangedEvent stockChanged(Long instrumentId) {
+        return new CatalogChangedEvent(Target.INSTRUMENT, Change.STOCK, instrumentId);
+    }
+
+    public static CatalogChangedEvent deleted(Target target, Long id) {
+        return new CatalogChangedEvent(target, Change.DELETE, id);
+    }
+}
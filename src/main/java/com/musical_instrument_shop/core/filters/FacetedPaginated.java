@@ -0,0 +1,43 @@
+package com.musical_instrument_shop.core.filters;
+
+import com.musical_instrument_shop.dto.FacetCountDTO;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * Paginated result plus facet counts. The counts of each dimension apply every filter except that
+ * dimension's own, so a client can show how many results selecting another brand or price range would give.
+ */
+@Getter
+@Setter
+@Builder
+public class FacetedPaginated<T> {
+    List<T> data;
+    int currentPage;
+    int pageSize;
+    int totalPages;
+    int numberOfElements;
+    long totalElements;
+    List<FacetCountDTO> brands;
+    List<FacetCountDTO> categories;
+    List<FacetCountDTO> priceRanges;
+
+    public static <T> FacetedPaginated<T> fromPage(Page<T> page, List<FacetCountDTO> brands,
+                                                   List<FacetCountDTO> categories, List<FacetCountDTO> priceRanges) {
+        return FacetedPaginated.<T>builder()
+                .data(page.getContent())
+                .currentPage(page.getNumber())
+                .pageSize(page.getSize())
+                .totalPages(page.getTotalPages())
+                .numberOfElements(page.getNumberOfElements())
+                .totalElements(page.getTotalElements())
+                .brands(brands)
+                .categories(categories)
+                .priceRanges(priceRanges)
+                .build();
+    }
+}
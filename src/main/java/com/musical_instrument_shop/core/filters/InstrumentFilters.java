@@ -0,0 +1,18 @@
+package com.musical_instrument_shop.core.filters;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Filters of the faceted instrument listing. Values within one dimension are OR-ed, dimensions are AND-ed.
+@Getter
+@Setter
+public class InstrumentFilters extends GenericFilters {
+    private List<Long> categoryIds;
+    private List<Long> brandIds;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+}
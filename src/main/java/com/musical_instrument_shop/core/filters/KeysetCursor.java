@@ -0,0 +1,32 @@
+package com.musical_instrument_shop.core.filters;
+
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page: the sort column, its direction, the row id and the
+ * row's value in the sort column. Sent to clients as an opaque Base64url string.
+ */
+public record KeysetCursor(String sortBy, Sort.Direction direction, Long id, String value) {
+
+    public String encode() {
+        String raw = sortBy + ":" + direction.name() + ":" + id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) throws AppObjectInvalidArgumentException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 4); // The value goes last since it may contain ':'
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new KeysetCursor(parts[0], Sort.Direction.valueOf(parts[1]), Long.valueOf(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Invalid pagination cursor");
+        }
+    }
+}
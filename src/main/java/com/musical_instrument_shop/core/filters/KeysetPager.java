@@ -0,0 +1,108 @@
+package com.musical_instrument_shop.core.filters;
+
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import com.musical_instrument_shop.core.specifications.KeysetSpecification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination for one entity type. Only the registered columns can be used as sort columns,
+ * each with a parser that restores the cursor value to the column's Java type.
+ * Sort columns must be non-null and should be indexed, so every page costs the same as the first one.
+ */
+public final class KeysetPager<E> {
+
+    private final Function<E, Long> idExtractor;
+    private final Map<String, Column<E>> columns = new LinkedHashMap<>();
+
+    public KeysetPager(Function<E, Long> idExtractor) {
+        this.idExtractor = idExtractor;
+        column("id", Long::valueOf, idExtractor);
+    }
+
+    public KeysetPager<E> column(String name, Function<String, ? extends Comparable<?>> parser, Function<E, ?> extractor) {
+        columns.put(name, new Column<>(parser, extractor));
+        return this;
+    }
+
+    /**
+     * Restricts the query to the rows after the given cursor. A null or blank cursor selects the first page.
+     */
+    public Specification<E> seek(String after, Pageable pageable) throws AppObjectInvalidArgumentException {
+        Sort.Order order = order(pageable);
+        Column<E> column = columns.get(order.getProperty());
+        if (column == null) {
+            throw new AppObjectInvalidArgumentException("Sort", "Sorting by " + order.getProperty() + " is not supported with cursor pagination");
+        }
+        if (after == null || after.isBlank()) {
+            return (root, query, cb) -> cb.conjunction();
+        }
+
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        if (!cursor.sortBy().equals(order.getProperty()) || cursor.direction() != order.getDirection()) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Cursor was issued for a different sort order");
+        }
+
+        Comparable<?> value;
+        try {
+            value = column.parser().apply(cursor.value());
+        } catch (RuntimeException e) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Invalid pagination cursor");
+        }
+        return KeysetSpecification.after(cursor.sortBy(), cursor.direction(), value, cursor.id());
+    }
+
+    /**
+     * Sort by the requested column with the id as tie-breaker.
+     */
+    public Sort sort(Pageable pageable) {
+        Sort.Order order = order(pageable);
+        return KeysetSpecification.sort(order.getProperty(), order.getDirection());
+    }
+
+    /**
+     * Rows to fetch: one more than the page size, to know whether a next page exists without counting.
+     */
+    public int limit(Pageable pageable) {
+        return pageable.getPageSize() + 1;
+    }
+
+    /**
+     * Builds the page from rows fetched with {@link #limit(Pageable)}.
+     */
+    public <D> KeysetPaginated<D> page(List<E> rows, Pageable pageable, Function<E, D> mapper) {
+        Sort.Order order = order(pageable);
+        int pageSize = pageable.getPageSize();
+        boolean hasNext = rows.size() > pageSize;
+        List<E> pageRows = hasNext ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            E last = pageRows.get(pageRows.size() - 1);
+            Object lastValue = columns.get(order.getProperty()).extractor().apply(last);
+            nextCursor = new KeysetCursor(order.getProperty(), order.getDirection(),
+                    idExtractor.apply(last), String.valueOf(lastValue)).encode();
+        }
+
+        return KeysetPaginated.<D>builder()
+                .data(pageRows.stream().map(mapper).toList())
+                .pageSize(pageSize)
+                .numberOfElements(pageRows.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private Sort.Order order(Pageable pageable) {
+        return pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+    }
+
+    private record Column<E>(Function<String, ? extends Comparable<?>> parser, Function<E, ?> extractor) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.musical_instrument_shop.core.filters;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Cursor (keyset) variant of Paginated. Has no page number or totals; the next page is
+ * requested by passing nextCursor as the "after" parameter.
+ */
+@Getter
+@Setter
+@Builder
+public class KeysetPaginated<T> {
+    List<T> data;
+    int pageSize;
+    int numberOfElements;
+    boolean hasNext;
+    String nextCursor;
+}
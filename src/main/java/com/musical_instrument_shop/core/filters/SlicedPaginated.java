@@ -0,0 +1,34 @@
+package com.musical_instrument_shop.core.filters;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Count-free variant of Paginated, returned when a listing is requested with withTotal=false.
+ * Backed by a Spring Data Slice, which fetches one extra row to know whether a next page exists
+ * instead of running a COUNT query.
+ */
+@Getter
+@Setter
+@Builder
+public class SlicedPaginated<T> {
+    List<T> data;
+    int currentPage;
+    int pageSize;
+    int numberOfElements;
+    boolean hasNext;
+
+    public static <T> SlicedPaginated<T> fromSlice(Slice<T> slice) {
+        return SlicedPaginated.<T>builder()
+                .data(slice.getContent())
+                .currentPage(slice.getNumber())
+                .pageSize(slice.getSize())
+                .numberOfElements(slice.getNumberOfElements())
+                .hasNext(slice.hasNext())
+                .build();
+    }
+}
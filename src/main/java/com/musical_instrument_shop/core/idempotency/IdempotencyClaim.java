@@ -0,0 +1,22 @@
+package com.musical_instrument_shop.core.idempotency;
+
+import com.musical_instrument_shop.dto.OrderReadOnlyDTO;
+
+/**
+ * Outcome of presenting an Idempotency-Key: either this request now owns the key (id of the claim row),
+ * or an earlier request with the same key already completed and its response is replayed.
+ */
+public record IdempotencyClaim(Long id, OrderReadOnlyDTO replay) {
+
+    public static IdempotencyClaim claimed(Long id) {
+        return new IdempotencyClaim(id, null);
+    }
+
+    public static IdempotencyClaim replayed(OrderReadOnlyDTO replay) {
+        return new IdempotencyClaim(null, replay);
+    }
+
+    public boolean isReplay() {
+        return replay != null;
+    }
+}
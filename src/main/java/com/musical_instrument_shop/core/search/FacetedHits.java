@@ -0,0 +1,12 @@
+package com.musical_instrument_shop.core.search;
+
+import com.musical_instrument_shop.dto.FacetCountDTO;
+
+import java.util.List;
+
+/**
+ * One page of filtered instrument ids with the facet counts of the whole result.
+ */
+public record FacetedHits(List<Long> ids, int total, List<FacetCountDTO> brands,
+                          List<FacetCountDTO> categories, List<FacetCountDTO> priceRanges) {
+}
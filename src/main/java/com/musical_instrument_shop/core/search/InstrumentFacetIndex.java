@@ -0,0 +1,363 @@
+package com.musical_instrument_shop.core.search;
+
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
+import com.musical_instrument_shop.core.filters.InstrumentFilters;
+import com.musical_instrument_shop.dto.FacetCountDTO;
+import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
+import com.musical_instrument_shop.repository.BrandRepository;
+import com.musical_instrument_shop.repository.CategoryRepository;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Columnar in-memory copy of the instrument attributes used for filtering: every instrument gets a row slot,
+ * each brand, category, price bucket and the in-stock flag keep a bitset of slots, and prices are kept in a column.
+ * Filters and facet counts are bitset intersections, so they never touch MySQL; only the returned page is
+ * loaded by primary key. Loaded on startup (or on first use) and kept current from CatalogChangedEvent.
+ * Stock changes arrive once per ordered line, so they are queued and applied in one batch off the request thread.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class InstrumentFacetIndex {
+
+    private final InstrumentRepository instrumentRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+
+    @Value("${app.facets.price-buckets:0,100,250,500,1000,2500,5000}")
+    private long[] priceBucketBounds; // Lower bound of each price bucket, the last bucket is open-ended
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns;
+    private volatile boolean loaded;
+
+    // Ids written while a reload is reading the table; refreshed once the loaded columns are swapped in
+    private volatile Set<Long> touchedDuringReload;
+
+    // Instruments whose stock changed since the last batched refresh
+    private final Set<Long> pendingStock = ConcurrentHashMap.newKeySet();
+
+    public FacetedHits filter(InstrumentFilters filters, long offset, int limit) {
+        ensureLoaded();
+        if (offset > Integer.MAX_VALUE - limit) offset = Integer.MAX_VALUE - limit;
+
+        lock.readLock().lock();
+        try {
+            return columns.filter(filters, (int) offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.target()) {
+            case INSTRUMENT -> {
+                switch (event.change()) {
+                    case DELETE -> write(List.of(event.id()), columns -> columns.remove(event.id()));
+                    case STOCK -> pendingStock.add(event.id());
+                    case UPSERT -> refresh(List.of(event.id()));
+                }
+            }
+            case BRAND -> brandRepository.findById(event.id())
+                    .ifPresent(brand -> write(List.of(), columns -> columns.brandNames.put(brand.getId(), brand.getName())));
+            case CATEGORY -> categoryRepository.findById(event.id())
+                    .ifPresent(category -> write(List.of(), columns -> columns.categoryNames.put(category.getId(), category.getName())));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.facets.stock-refresh-ms:1000}", fixedDelayString = "${app.facets.stock-refresh-ms:1000}")
+    public void refreshStock() {
+        if (pendingStock.isEmpty()) return;
+
+        List<Long> ids = new ArrayList<>(pendingStock);
+        ids.forEach(pendingStock::remove); // Removed before reading, so later commits queue another refresh
+        refresh(ids);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (!loaded) reload();
+        }
+    }
+
+    private void reload() {
+        long start = System.nanoTime();
+        touchedDuringReload = ConcurrentHashMap.newKeySet();
+
+        Columns reloaded = new Columns(priceBucketBounds);
+        brandRepository.findAll().forEach(brand -> reloaded.brandNames.put(brand.getId(), brand.getName()));
+        categoryRepository.findAll().forEach(category -> reloaded.categoryNames.put(category.getId(), category.getName()));
+        instrumentRepository.findAllReadOnly().forEach(reloaded::put);
+
+        lock.writeLock().lock();
+        try {
+            columns = reloaded;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Set<Long> touched = touchedDuringReload;
+        touchedDuringReload = null;
+        if (!touched.isEmpty()) refresh(touched);
+        log.info("Instrument facet index loaded with {} instruments in {} ms",
+                reloaded.slotById.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void refresh(Collection<Long> ids) {
+        Map<Long, InstrumentReadOnlyDTO> found = instrumentRepository.findReadOnlyByIdIn(ids).stream()
+                .collect(Collectors.toMap(InstrumentReadOnlyDTO::id, Function.identity()));
+        write(ids, columns -> ids.forEach(id -> {
+            InstrumentReadOnlyDTO instrument = found.get(id);
+            if (instrument != null) columns.put(instrument);
+            else columns.remove(id);
+        }));
+    }
+
+    private void write(Collection<Long> ids, Consumer<Columns> change) {
+        Set<Long> touched = touchedDuringReload;
+        if (touched != null) touched.addAll(ids);
+
+        lock.writeLock().lock();
+        try {
+            if (columns != null) change.accept(columns); // Not loaded yet: the load will read the committed row
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Columns {
+
+        private final long[] bucketBoundsCents;
+        private final BitSet[] byPriceBucket;
+        private final Map<Long, BitSet> byBrand = new HashMap<>();
+        private final Map<Long, BitSet> byCategory = new HashMap<>();
+        private final Map<Long, String> brandNames = new HashMap<>();
+        private final Map<Long, String> categoryNames = new HashMap<>();
+        private final BitSet live = new BitSet();
+        private final BitSet inStock = new BitSet();
+
+        private final Map<Long, Integer> slotById = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private int slotCount;
+        private long[] ids = new long[1024];
+        private long[] priceCents = new long[1024];
+        private long[] brandOf = new long[1024];
+        private long[] categoryOf = new long[1024];
+
+        private Columns(long[] priceBucketBounds) {
+            this.bucketBoundsCents = Arrays.stream(priceBucketBounds).map(bound -> bound * 100).toArray();
+            this.byPriceBucket = new BitSet[priceBucketBounds.length];
+            for (int i = 0; i < byPriceBucket.length; i++) byPriceBucket[i] = new BitSet();
+        }
+
+        private void put(InstrumentReadOnlyDTO instrument) {
+            Integer slot = slotById.get(instrument.id());
+            if (slot != null) {
+                clear(slot);
+            } else {
+                slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+                ensureCapacity(slot);
+                slotById.put(instrument.id(), slot);
+            }
+
+            ids[slot] = instrument.id();
+            priceCents[slot] = cents(instrument.price());
+            brandOf[slot] = instrument.brandId();
+            categoryOf[slot] = instrument.categoryId();
+
+            live.set(slot);
+            if (instrument.stock() != null && instrument.stock() > 0) inStock.set(slot);
+            byBrand.computeIfAbsent(instrument.brandId(), key -> new BitSet()).set(slot);
+            byCategory.computeIfAbsent(instrument.categoryId(), key -> new BitSet()).set(slot);
+            byPriceBucket[bucket(priceCents[slot])].set(slot);
+            brandNames.put(instrument.brandId(), instrument.brandName());
+            categoryNames.put(instrument.categoryId(), instrument.categoryName());
+        }
+
+        private void remove(Long id) {
+            Integer slot = slotById.remove(id);
+            if (slot == null) return;
+
+            clear(slot);
+            freeSlots.push(slot);
+        }
+
+        private void clear(int slot) {
+            live.clear(slot);
+            inStock.clear(slot);
+            byBrand.get(brandOf[slot]).clear(slot);
+            byCategory.get(categoryOf[slot]).clear(slot);
+            byPriceBucket[bucket(priceCents[slot])].clear(slot);
+        }
+
+        private FacetedHits filter(InstrumentFilters filters, int offset, int limit) {
+            BitSet brandMatch = anyOf(byBrand, filters.getBrandIds());
+            BitSet categoryMatch = anyOf(byCategory, filters.getCategoryIds());
+            BitSet priceMatch = priceBetween(filters.getMinPrice(), filters.getMaxPrice());
+            BitSet stockMatch = stockMatch(filters.getInStock());
+
+            // Each facet is counted with every filter except its own
+            BitSet matches = intersect(brandMatch, categoryMatch, priceMatch, stockMatch);
+            List<FacetCountDTO> brands = countBy(byBrand, brandNames, intersect(categoryMatch, priceMatch, stockMatch));
+            List<FacetCountDTO> categories = countBy(byCategory, categoryNames, intersect(brandMatch, priceMatch, stockMatch));
+            List<FacetCountDTO> priceRanges = countByPrice(intersect(brandMatch, categoryMatch, stockMatch));
+
+            return new FacetedHits(page(matches, filters, offset, limit), matches.cardinality(), brands, categories, priceRanges);
+        }
+
+        private BitSet intersect(BitSet... restrictions) {
+            BitSet result = (BitSet) live.clone();
+            for (BitSet restriction : restrictions) {
+                if (restriction != null) result.and(restriction);
+            }
+            return result;
+        }
+
+        // Null means the dimension is not filtered
+        private static BitSet anyOf(Map<Long, BitSet> bitsets, List<Long> selected) {
+            if (selected == null || selected.isEmpty()) return null;
+
+            BitSet union = new BitSet();
+            for (Long id : selected) {
+                BitSet bitset = bitsets.get(id);
+                if (bitset != null) union.or(bitset);
+            }
+            return union;
+        }
+
+        private BitSet priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+            if (minPrice == null && maxPrice == null) return null;
+
+            long min = minPrice == null ? Long.MIN_VALUE : cents(minPrice);
+            long max = maxPrice == null ? Long.MAX_VALUE : cents(maxPrice);
+            BitSet matches = new BitSet();
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                if (priceCents[slot] >= min && priceCents[slot] <= max) matches.set(slot);
+            }
+            return matches;
+        }
+
+        private BitSet stockMatch(Boolean wantInStock) {
+            if (wantInStock == null) return null;
+            if (wantInStock) return inStock;
+
+            BitSet outOfStock = (BitSet) live.clone();
+            outOfStock.andNot(inStock);
+            return outOfStock;
+        }
+
+        private static List<FacetCountDTO> countBy(Map<Long, BitSet> bitsets, Map<Long, String> names, BitSet filtered) {
+            List<FacetCountDTO> counts = new ArrayList<>();
+            for (Map.Entry<Long, BitSet> facet : bitsets.entrySet()) {
+                BitSet matching = (BitSet) facet.getValue().clone();
+                matching.and(filtered);
+                int count = matching.cardinality();
+                if (count == 0) continue;
+
+                counts.add(FacetCountDTO.builder()
+                        .value(String.valueOf(facet.getKey()))
+                        .label(names.get(facet.getKey()))
+                        .count(count)
+                        .build());
+            }
+            counts.sort(Comparator.comparingLong(FacetCountDTO::count).reversed()
+                    .thenComparing(FacetCountDTO::value));
+            return counts;
+        }
+
+        private List<FacetCountDTO> countByPrice(BitSet filtered) {
+            List<FacetCountDTO> counts = new ArrayList<>();
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                BitSet matching = (BitSet) byPriceBucket[i].clone();
+                matching.and(filtered);
+                int count = matching.cardinality();
+                if (count == 0) continue;
+
+                long from = bucketBoundsCents[i] / 100;
+                boolean last = i == byPriceBucket.length - 1;
+                String to = last ? "" : String.valueOf(bucketBoundsCents[i + 1] / 100);
+                // Buckets are [from, to) but maxPrice is inclusive, so the value stops one cent below the next bucket
+                String maxPrice = last ? "" : BigDecimal.valueOf(bucketBoundsCents[i + 1] - 1, 2).toPlainString();
+                counts.add(FacetCountDTO.builder()
+                        .value(from + "-" + maxPrice) // Usable as minPrice/maxPrice
+                        .label(last ? from + "+" : from + " - " + to)
+                        .count(count)
+                        .build());
+            }
+            return counts;
+        }
+
+        private List<Long> page(BitSet matches, InstrumentFilters filters, int offset, int limit) {
+            Comparator<Integer> order = "price".equals(filters.getSortBy())
+                    ? Comparator.<Integer>comparingLong(slot -> priceCents[slot]).thenComparingLong(slot -> ids[slot])
+                    : Comparator.<Integer>comparingLong(slot -> ids[slot]);
+            if (filters.getSortDirection() == Sort.Direction.DESC) order = order.reversed();
+
+            return matches.stream()
+                    .boxed()
+                    .sorted(order)
+                    .skip(offset)
+                    .limit(limit)
+                    .map(slot -> ids[slot])
+                    .toList();
+        }
+
+        private int bucket(long cents) {
+            int bucket = 0;
+            while (bucket + 1 < bucketBoundsCents.length && cents >= bucketBoundsCents[bucket + 1]) bucket++;
+            return bucket;
+        }
+
+        private void ensureCapacity(int slot) {
+            if (slot < ids.length) return;
+
+            int capacity = Math.max(ids.length * 2, slot + 1);
+            ids = Arrays.copyOf(ids, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            brandOf = Arrays.copyOf(brandOf, capacity);
+            categoryOf = Arrays.copyOf(categoryOf, capacity);
+        }
+
+        private static long cents(BigDecimal price) {
+            return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.musical_instrument_shop.core.search;
+
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
+import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index over instrument name, description, brand name and category name,
+ * ranked with BM25. Name matches weigh more than brand/category matches, which weigh more than description matches.
+ * The index only returns ids; callers load the current rows by primary key, so stock and price are never stale.
+ * It is rebuilt in parallel id ranges on startup and kept current from CatalogChangedEvent after each commit.
+ * Fuzzy searches first expand misspelled words to indexed name/brand words within edit distance 1-2.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class InstrumentSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final InstrumentRepository instrumentRepository;
+
+    @Value("${app.search.rebuild-chunk-size:1000}")
+    private int rebuildChunkSize;
+
+    @Value("${app.search.rebuild-threads:0}")
+    private int rebuildThreads; // 0 means one thread per available core
+
+    @Value("${app.search.fuzzy.candidate-budget:200}")
+    private int fuzzyCandidateBudget; // Words verified with edit distance per query word
+
+    @Value("${app.search.fuzzy.max-expansions:5}")
+    private int fuzzyMaxExpansions; // Indexed words a misspelled query word may expand to
+
+    @Value("${app.search.fuzzy.max-query-terms:8}")
+    private int fuzzyMaxQueryTerms; // Extra words in a fuzzy query are ignored
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private InvertedIndex index = new InvertedIndex();
+    private NGramVocabulary vocabulary = new NGramVocabulary();
+    private volatile boolean ready;
+
+    // Ids written while a rebuild is loading; re-read once the rebuilt index is swapped in
+    private volatile Set<Long> touchedDuringRebuild;
+
+    /**
+     * False until the startup rebuild has finished; callers fall back to the database meanwhile.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public SearchHits search(String query, long offset, int limit) {
+        List<String> terms = TextAnalyzer.tokens(query);
+        if (terms.isEmpty() || offset > Integer.MAX_VALUE - limit) return SearchHits.empty();
+
+        lock.readLock().lock();
+        try {
+            return index.search(terms, (int) offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like search, but every query word also matches indexed name/brand words within a small edit distance:
+     * one edit for words up to 5 letters, two for longer ones, none below 3 letters.
+     * Corrected words score lower than exact ones, so exact matches still rank first.
+     */
+    public SearchHits fuzzySearch(String query, long offset, int limit) {
+        List<String> terms = TextAnalyzer.tokens(query).stream().distinct().limit(fuzzyMaxQueryTerms).toList();
+        if (terms.isEmpty() || offset > Integer.MAX_VALUE - limit) return SearchHits.empty();
+
+        lock.readLock().lock();
+        try {
+            Map<String, Double> termWeights = new HashMap<>();
+            for (String term : terms) {
+                if (index.contains(term)) termWeights.put(term, 1.0);
+
+                int maxEdits = term.length() < 3 ? 0 : term.length() <= 5 ? 1 : 2;
+                if (maxEdits == 0) continue;
+                for (NGramVocabulary.Match match : vocabulary.similar(term, maxEdits, fuzzyCandidateBudget, fuzzyMaxExpansions)) {
+                    termWeights.merge(match.term(), 1.0 / (1 + match.distance()), Math::max);
+                }
+            }
+            return index.search(termWeights, (int) offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+        Long maxId = instrumentRepository.findMaxId();
+        InvertedIndex rebuilt = new InvertedIndex();
+        NGramVocabulary rebuiltVocabulary = new NGramVocabulary();
+        if (maxId != null) {
+            int threads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                // Each chunk is a primary key range scan, loaded and analyzed on its own thread
+                List<CompletableFuture<List<AnalyzedInstrument>>> chunks = new ArrayList<>();
+                for (long from = 1; from <= maxId; from += rebuildChunkSize) {
+                    long to = from + rebuildChunkSize - 1;
+                    long chunkStart = from;
+                    chunks.add(CompletableFuture.supplyAsync(() -> instrumentRepository.findReadOnlyByIdBetween(chunkStart, to)
+                            .stream()
+                            .map(InstrumentSearchIndex::analyze)
+                            .toList(), executor));
+                }
+                for (CompletableFuture<List<AnalyzedInstrument>> chunk : chunks) {
+                    chunk.join().forEach(analyzed -> {
+                        rebuilt.put(analyzed.id(), analyzed.termFrequencies());
+                        rebuiltVocabulary.put(analyzed.id(), analyzed.nameTerms());
+                    });
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+            vocabulary = rebuiltVocabulary;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Set<Long> touched = touchedDuringRebuild;
+        touchedDuringRebuild = null;
+        touched.forEach(this::reindex);
+        log.info("Instrument search index rebuilt with {} documents in {} ms",
+                rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.change() == CatalogChangedEvent.Change.STOCK) return; // Stock is not indexed text
+
+        switch (event.target()) {
+            case INSTRUMENT -> {
+                if (event.change() == CatalogChangedEvent.Change.DELETE) {
+                    remove(event.id());
+                } else {
+                    reindex(event.id());
+                }
+            }
+            // A renamed brand or category changes the indexed text of all of its instruments
+            case BRAND -> instrumentRepository.findAllReadOnlyByBrandId(event.id()).forEach(this::index);
+            case CATEGORY -> instrumentRepository.findAllReadOnlyByCategoryId(event.id()).forEach(this::index);
+        }
+    }
+
+    private void reindex(Long id) {
+        Set<Long> touched = touchedDuringRebuild;
+        if (touched != null) touched.add(id);
+
+        instrumentRepository.findReadOnlyById(id).ifPresentOrElse(this::index, () -> remove(id));
+    }
+
+    private void index(InstrumentReadOnlyDTO instrument) {
+        Set<Long> touched = touchedDuringRebuild;
+        if (touched != null) touched.add(instrument.id());
+
+        AnalyzedInstrument analyzed = analyze(instrument);
+        lock.writeLock().lock();
+        try {
+            index.put(analyzed.id(), analyzed.termFrequencies());
+            vocabulary.put(analyzed.id(), analyzed.nameTerms());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long id) {
+        Set<Long> touched = touchedDuringRebuild;
+        if (touched != null) touched.add(id);
+
+        lock.writeLock().lock();
+        try {
+            index.remove(id);
+            vocabulary.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static AnalyzedInstrument analyze(InstrumentReadOnlyDTO instrument) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        addField(termFrequencies, instrument.name(), NAME_WEIGHT);
+        addField(termFrequencies, instrument.brandName(), BRAND_WEIGHT);
+        addField(termFrequencies, instrument.categoryName(), CATEGORY_WEIGHT);
+        addField(termFrequencies, instrument.description(), DESCRIPTION_WEIGHT);
+
+        // Misspellings are corrected against instrument and brand names only
+        Set<String> nameTerms = new HashSet<>(TextAnalyzer.tokens(instrument.name()));
+        nameTerms.addAll(TextAnalyzer.tokens(instrument.brandName()));
+        return new AnalyzedInstrument(instrument.id(), termFrequencies, nameTerms);
+    }
+
+    private static void addField(Map<String, Integer> termFrequencies, String text, int weight) {
+        for (String token : TextAnalyzer.tokens(text)) {
+            termFrequencies.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private record AnalyzedInstrument(Long id, Map<String, Integer> termFrequencies, Set<String> nameTerms) {
+    }
+}
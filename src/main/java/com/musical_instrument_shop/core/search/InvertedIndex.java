@@ -0,0 +1,101 @@
+package com.musical_instrument_shop.core.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Term -> (document -> term frequency) postings with Okapi BM25 scoring.
+ * Not thread-safe: InstrumentSearchIndex guards every access with its read/write lock.
+ */
+final class InvertedIndex {
+
+    private static final double K1 = 1.2;  // Term frequency saturation
+    private static final double B = 0.75;  // Document length normalization
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>(); // Kept to remove a document's postings
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    private long totalLength;
+
+    void put(Long id, Map<String, Integer> termFrequencies) {
+        remove(id);
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(id, entry.getValue());
+            length += entry.getValue();
+        }
+        documents.put(id, termFrequencies);
+        lengths.put(id, length);
+        totalLength += length;
+    }
+
+    void remove(Long id) {
+        Map<String, Integer> termFrequencies = documents.remove(id);
+        if (termFrequencies == null) return;
+
+        for (String term : termFrequencies.keySet()) {
+            Map<Long, Integer> docs = postings.get(term);
+            docs.remove(id);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+        totalLength -= lengths.remove(id);
+    }
+
+    boolean contains(String term) {
+        return postings.containsKey(term);
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    /**
+     * Scores every document containing at least one query term and returns the requested window
+     * of the ranking (highest score first, ties broken by id). Only offset + limit hits are kept in memory.
+     */
+    SearchHits search(List<String> terms, int offset, int limit) {
+        Map<String, Double> termWeights = new HashMap<>();
+        terms.forEach(term -> termWeights.put(term, 1.0));
+        return search(termWeights, offset, limit);
+    }
+
+    /**
+     * Same as search(terms, ...) with a weight per term, used to score fuzzy expansions below exact matches.
+     */
+    SearchHits search(Map<String, Double> termWeights, int offset, int limit) {
+        int documentCount = documents.size();
+        if (documentCount == 0 || termWeights.isEmpty()) return SearchHits.empty();
+
+        double averageLength = (double) totalLength / documentCount;
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Double> weighted : termWeights.entrySet()) {
+            Map<Long, Integer> docs = postings.get(weighted.getKey());
+            if (docs == null) continue;
+
+            double idf = Math.log(1 + (documentCount - docs.size() + 0.5) / (docs.size() + 0.5));
+            for (Map.Entry<Long, Integer> posting : docs.entrySet()) {
+                int tf = posting.getValue();
+                double norm = K1 * (1 - B + B * lengths.get(posting.getKey()) / averageLength);
+                scores.merge(posting.getKey(), weighted.getValue() * idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+            }
+        }
+
+        Comparator<Map.Entry<Long, Double>> byRank = Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        int window = offset + limit;
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(byRank.reversed()); // Worst kept hit on top
+        for (Map.Entry<Long, Double> scored : scores.entrySet()) {
+            top.offer(scored);
+            if (top.size() > window) top.poll();
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+        ranked.sort(byRank);
+        List<Long> ids = ranked.stream().skip(offset).map(Map.Entry::getKey).toList();
+        return new SearchHits(ids, scores.size());
+    }
+}
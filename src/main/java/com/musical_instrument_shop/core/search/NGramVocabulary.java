@@ -0,0 +1,158 @@
+package com.musical_instrument_shop.core.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index over the words of instrument and brand names, used to find the indexed words within
+ * a small edit distance of a misspelled query word ("gibsn" -> "gibson", "pual" -> "paul").
+ * Trigrams narrow the vocabulary to a few candidates which are then checked with a bounded Damerau distance
+ * (optimal string alignment: swapping two adjacent letters is one edit). Short words share too few trigrams
+ * with their misspellings, so they are also indexed by their one-letter deletions: two words are one edit apart
+ * only if their deletion sets intersect.
+ * Unlike a BK-tree it supports removing words, so it can follow catalog deletes.
+ * Not thread-safe: InstrumentSearchIndex guards every access with its read/write lock.
+ */
+final class NGramVocabulary {
+
+    private static final int SCAN_BUDGET_FACTOR = 50; // Trigram postings visited per verified candidate, at most
+    private static final int SHORT_TERM_LENGTH = 6; // Longest word indexed by its deletions
+
+    private final Map<String, Set<String>> termsByGram = new HashMap<>();
+    private final Map<String, Set<String>> termsByDeletion = new HashMap<>();
+    private final Map<String, Integer> documentCounts = new HashMap<>(); // How many documents use each word
+    private final Map<Long, Set<String>> documents = new HashMap<>();
+
+    record Match(String term, int distance) {
+    }
+
+    void put(Long id, Set<String> terms) {
+        remove(id);
+        documents.put(id, terms);
+        for (String term : terms) {
+            if (documentCounts.merge(term, 1, Integer::sum) == 1) {
+                for (String gram : grams(term)) {
+                    termsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(term);
+                }
+                if (term.length() > SHORT_TERM_LENGTH) continue;
+                for (String deletion : deletions(term)) {
+                    termsByDeletion.computeIfAbsent(deletion, key -> new HashSet<>()).add(term);
+                }
+            }
+        }
+    }
+
+    void remove(Long id) {
+        Set<String> terms = documents.remove(id);
+        if (terms == null) return;
+
+        for (String term : terms) {
+            if (documentCounts.merge(term, -1, Integer::sum) > 0) continue;
+
+            documentCounts.remove(term);
+            grams(term).forEach(gram -> unlink(termsByGram, gram, term));
+            if (term.length() <= SHORT_TERM_LENGTH) deletions(term).forEach(deletion -> unlink(termsByDeletion, deletion, term));
+        }
+    }
+
+    /**
+     * Returns at most maxMatches indexed words within maxEdits of the given word, closest first.
+     * At most candidateBudget words are verified and a bounded number of trigram postings are scanned,
+     * whatever the query looks like.
+     */
+    List<Match> similar(String term, int maxEdits, int candidateBudget, int maxMatches) {
+        // One edit away from a short word: the deletion sets are complete, so every candidate shares a key
+        boolean byDeletions = maxEdits == 1 && term.length() < SHORT_TERM_LENGTH;
+        List<String> queryKeys = byDeletions ? List.copyOf(deletions(term)) : grams(term);
+        Map<String, Set<String>> postings = byDeletions ? termsByDeletion : termsByGram;
+        Map<String, Integer> sharedKeys = new HashMap<>();
+        int scanBudget = candidateBudget * SCAN_BUDGET_FACTOR;
+        scan:
+        for (String key : queryKeys) {
+            for (String candidate : postings.getOrDefault(key, Set.of())) {
+                if (scanBudget-- == 0) break scan;
+                sharedKeys.merge(candidate, 1, Integer::sum);
+            }
+        }
+
+        // Every edit destroys at most four trigrams (a swap touches two letters), so closer words must share this many
+        int minShared = byDeletions ? 1 : Math.max(1, queryKeys.size() - 4 * maxEdits);
+        List<Map.Entry<String, Integer>> candidates = sharedKeys.entrySet().stream()
+                .filter(candidate -> candidate.getValue() >= minShared)
+                .filter(candidate -> Math.abs(candidate.getKey().length() - term.length()) <= maxEdits)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(candidateBudget)
+                .toList();
+
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<String, Integer> candidate : candidates) {
+            int distance = boundedDistance(term, candidate.getKey(), maxEdits);
+            if (distance <= maxEdits) matches.add(new Match(candidate.getKey(), distance));
+        }
+        matches.sort(Comparator.comparingInt(Match::distance)
+                .thenComparingInt(match -> -documentCounts.get(match.term()))); // Then the more common word
+        return matches.size() > maxMatches ? matches.subList(0, maxMatches) : matches;
+    }
+
+    private static void unlink(Map<String, Set<String>> postings, String key, String term) {
+        Set<String> terms = postings.get(key);
+        terms.remove(term);
+        if (terms.isEmpty()) postings.remove(key);
+    }
+
+    // The word itself and every word left by deleting one of its letters
+    private static Set<String> deletions(String term) {
+        Set<String> deletions = new HashSet<>();
+        deletions.add(term);
+        for (int i = 0; i < term.length(); i++) {
+            deletions.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return deletions;
+    }
+
+    private static List<String> grams(String term) {
+        String padded = "$" + term + "$";
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent swaps) that stops as soon as it must exceed
+     * maxEdits and then returns maxEdits + 1.
+     */
+    static int boundedDistance(String a, String b, int maxEdits) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            // A swap reads two rows back, but that row's minimum is at least this row's minus one, so later rows stay above too
+            if (rowMin > maxEdits) return maxEdits + 1;
+
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], maxEdits + 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.musical_instrument_shop.core.search;
+
+import com.musical_instrument_shop.dto.SuggestionDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix trie whose nodes carry their own precomputed top-k suggestions, so a lookup is
+ * one walk down the prefix and no subtree scan. Children are kept in sorted parallel arrays to stay compact.
+ * Every word start of a name is inserted ("gibson les paul", "les paul", "paul"), so typing any word matches.
+ */
+public final class PrefixTrie {
+
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingLong(Entry::popularity).reversed()
+            .thenComparing(entry -> entry.suggestion().name());
+
+    private final Node root;
+
+    private PrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    public record Entry(SuggestionDTO suggestion, long popularity) {
+    }
+
+    public static PrefixTrie build(Collection<Entry> entries, int topK) {
+        MutableNode root = new MutableNode();
+        for (Entry entry : entries) {
+            List<String> tokens = TextAnalyzer.tokens(entry.suggestion().name());
+            for (int start = 0; start < tokens.size(); start++) {
+                root.insert(String.join(" ", tokens.subList(start, tokens.size())), entry);
+            }
+        }
+        return new PrefixTrie(root.freeze(topK));
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = String.join(" ", TextAnalyzer.tokens(prefix));
+        if (key.isEmpty()) return List.of();
+
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) return List.of();
+
+        return Arrays.stream(node.top)
+                .limit(limit)
+                .map(Entry::suggestion)
+                .toList();
+    }
+
+    private static final class Node {
+        private final char[] labels;
+        private final Node[] children;
+        private final Entry[] top;
+
+        private Node(char[] labels, Node[] children, Entry[] top) {
+            this.labels = labels;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    // Build-time node; frozen bottom-up into compact nodes once every key is inserted
+    private static final class MutableNode {
+        private final TreeMap<Character, MutableNode> children = new TreeMap<>();
+        private final List<Entry> terminals = new ArrayList<>();
+
+        private void insert(String key, Entry entry) {
+            MutableNode node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), label -> new MutableNode());
+            }
+            node.terminals.add(entry);
+        }
+
+        private Node freeze(int topK) {
+            char[] labels = new char[children.size()];
+            Node[] frozen = new Node[children.size()];
+            List<Entry> candidates = new ArrayList<>(terminals);
+            int i = 0;
+            for (var child : children.entrySet()) {
+                labels[i] = child.getKey();
+                frozen[i] = child.getValue().freeze(topK);
+                candidates.addAll(Arrays.asList(frozen[i].top));
+                i++;
+            }
+
+            // The same entry can arrive through several word starts, keep it once
+            candidates.sort(BY_POPULARITY);
+            Set<Entry> top = new LinkedHashSet<>();
+            for (Entry candidate : candidates) {
+                if (top.size() == topK) break;
+                top.add(candidate);
+            }
+            return new Node(labels, frozen, top.toArray(Entry[]::new));
+        }
+    }
+}
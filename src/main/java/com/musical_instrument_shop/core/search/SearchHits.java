@@ -0,0 +1,13 @@
+package com.musical_instrument_shop.core.search;
+
+import java.util.List;
+
+/**
+ * One page of search results: the matching ids in rank order and the total number of matches.
+ */
+public record SearchHits(List<Long> ids, int total) {
+
+    public static SearchHits empty() {
+        return new SearchHits(List.of(), 0);
+    }
+}
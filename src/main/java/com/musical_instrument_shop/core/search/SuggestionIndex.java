@@ -0,0 +1,159 @@
+package com.musical_instrument_shop.core.search;
+
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
+import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
+import com.musical_instrument_shop.dto.SuggestionDTO;
+import com.musical_instrument_shop.model.Brand;
+import com.musical_instrument_shop.model.Category;
+import com.musical_instrument_shop.repository.BrandRepository;
+import com.musical_instrument_shop.repository.CategoryRepository;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import com.musical_instrument_shop.repository.OrderItemRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Typeahead over instrument, brand and category names, ranked by popularity (units ordered;
+ * a brand or category counts the units of all of its instruments).
+ * Lookups read an immutable PrefixTrie snapshot. Catalog writes update the entry map and schedule one
+ * background rebuild of the snapshot, so a burst of writes costs a single rebuild.
+ * Popularity is recomputed from order items on startup and on a fixed schedule.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SuggestionIndex {
+
+    private final InstrumentRepository instrumentRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    @Value("${app.suggest.top-k:10}")
+    private int topK;
+
+    private final Map<String, PrefixTrie.Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile PrefixTrie trie = PrefixTrie.build(List.of(), 1);
+
+    // Entries written while a reload is reading the tables; re-read once the loaded entries are swapped in
+    private volatile Set<CatalogChangedEvent> touchedDuringReload;
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(Math.max(limit, 1), topK));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.suggest.refresh-ms:900000}", fixedDelayString = "${app.suggest.refresh-ms:900000}")
+    public void reload() {
+        touchedDuringReload = ConcurrentHashMap.newKeySet();
+
+        Map<Long, Long> unitsByInstrument = new HashMap<>();
+        orderItemRepository.sumUnitsByInstrument()
+                .forEach(sales -> unitsByInstrument.put(sales.getInstrumentId(), sales.getUnits()));
+
+        Map<String, PrefixTrie.Entry> loaded = new HashMap<>();
+        Map<Long, Long> unitsByBrand = new HashMap<>();
+        Map<Long, Long> unitsByCategory = new HashMap<>();
+        for (InstrumentReadOnlyDTO instrument : instrumentRepository.findAllReadOnly()) {
+            long units = unitsByInstrument.getOrDefault(instrument.id(), 0L);
+            loaded.put(key(CatalogChangedEvent.Target.INSTRUMENT, instrument.id()),
+                    entry(CatalogChangedEvent.Target.INSTRUMENT, instrument.id(), instrument.name(), units));
+            unitsByBrand.merge(instrument.brandId(), units, Long::sum);
+            unitsByCategory.merge(instrument.categoryId(), units, Long::sum);
+        }
+        brandRepository.findAll().forEach(brand -> loaded.put(key(CatalogChangedEvent.Target.BRAND, brand.getId()),
+                entry(CatalogChangedEvent.Target.BRAND, brand.getId(), brand.getName(), unitsByBrand.getOrDefault(brand.getId(), 0L))));
+        categoryRepository.findAll().forEach(category -> loaded.put(key(CatalogChangedEvent.Target.CATEGORY, category.getId()),
+                entry(CatalogChangedEvent.Target.CATEGORY, category.getId(), category.getName(), unitsByCategory.getOrDefault(category.getId(), 0L))));
+
+        entries.keySet().retainAll(loaded.keySet());
+        entries.putAll(loaded);
+
+        Set<CatalogChangedEvent> touched = touchedDuringReload;
+        touchedDuringReload = null;
+        touched.forEach(event -> refresh(event.target(), event.id()));
+        scheduleRebuild();
+        log.info("Suggestion index reloaded with {} names", loaded.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.change() == CatalogChangedEvent.Change.STOCK) return;
+
+        Set<CatalogChangedEvent> touched = touchedDuringReload;
+        if (touched != null) touched.add(event);
+
+        if (event.change() == CatalogChangedEvent.Change.DELETE) {
+            entries.remove(key(event.target(), event.id()));
+        } else {
+            refresh(event.target(), event.id());
+        }
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdown();
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) return; // A rebuild is already queued and will see this change
+
+        rebuilder.execute(() -> {
+            rebuildScheduled.set(false); // Cleared before reading, so later writes queue another rebuild
+            trie = PrefixTrie.build(entries.values(), topK);
+        });
+    }
+
+    // Re-reads one name; a renamed entry keeps the popularity it had until the next scheduled reload
+    private void refresh(CatalogChangedEvent.Target target, Long id) {
+        String key = key(target, id);
+        Optional<String> name = switch (target) {
+            case INSTRUMENT -> instrumentRepository.findReadOnlyById(id).map(InstrumentReadOnlyDTO::name);
+            case BRAND -> brandRepository.findById(id).map(Brand::getName);
+            case CATEGORY -> categoryRepository.findById(id).map(Category::getName);
+        };
+        name.ifPresentOrElse(found -> {
+            PrefixTrie.Entry current = entries.get(key);
+            entries.put(key, entry(target, id, found, current != null ? current.popularity() : 0L));
+        }, () -> entries.remove(key));
+    }
+
+    private static String key(CatalogChangedEvent.Target target, Long id) {
+        return target + ":" + id;
+    }
+
+    private static PrefixTrie.Entry entry(CatalogChangedEvent.Target target, Long id, String name, long popularity) {
+        SuggestionDTO suggestion = SuggestionDTO.builder()
+                .type(target.name())
+                .id(id)
+                .name(name)
+                .build();
+        return new PrefixTrie.Entry(suggestion, popularity);
+    }
+}
@@ -0,0 +1,37 @@
+package com.musical_instrument_shop.core.specifications;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Seek predicates for keyset pagination. Rows are ordered by (sortBy, id), so a page starts
+ * right after the (value, id) pair of the previous page's last row and can use the index on
+ * the sort column instead of skipping an offset.
+ */
+public final class KeysetSpecification {
+
+    private KeysetSpecification() {
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Specification<T> after(String sortBy, Sort.Direction direction, Comparable value, Long id) {
+        return (root, query, cb) -> {
+            Path<Long> idPath = root.get("id");
+            Predicate idBeyond = direction.isAscending() ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id);
+            if ("id".equals(sortBy)) {
+                return idBeyond;
+            }
+
+            Path<Comparable> sortPath = root.get(sortBy);
+            Predicate valueBeyond = direction.isAscending() ? cb.greaterThan(sortPath, value) : cb.lessThan(sortPath, value);
+            return cb.or(valueBeyond, cb.and(cb.equal(sortPath, value), idBeyond));
+        };
+    }
+
+    public static Sort sort(String sortBy, Sort.Direction direction) {
+        Sort byId = Sort.by(direction, "id");
+        return "id".equals(sortBy) ? byId : Sort.by(direction, sortBy).and(byId);
+    }
+}
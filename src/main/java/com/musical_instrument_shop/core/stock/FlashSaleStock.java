@@ -0,0 +1,149 @@
+package com.musical_instrument_shop.core.stock;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Units still available for instruments in flash-sale mode, held in memory and reserved with a compare-and-set loop.
+ * A reservation never touches the database; the units sold are recorded as ledger movements and folded into the stock later.
+ * Each reservation stays in flight until its checkout transaction completes (finished), so ending a sale can close
+ * the counter and wait for every reservation to be committed or given back before it folds the ledger.
+ * Counters live in this instance only, so flash-sale mode assumes a single application instance.
+ */
+@Component
+public class FlashSaleStock {
+
+    public enum Reservation { RESERVED, SOLD_OUT, INACTIVE, CLOSING }
+
+    private static final class Counter {
+        private final AtomicInteger units;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean closing;
+
+        private Counter(int units) {
+            this.units = new AtomicInteger(units);
+        }
+
+        private synchronized void wakeUp() {
+            notifyAll();
+        }
+    }
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    public boolean isActive(Long instrumentId) {
+        return counters.containsKey(instrumentId);
+    }
+
+    public boolean isSoldOut(Long instrumentId) {
+        Counter counter = counters.get(instrumentId);
+        return counter != null && counter.units.get() <= 0;
+    }
+
+    public void activate(Long instrumentId, long units) {
+        counters.put(instrumentId, new Counter((int) Math.max(units, 0)));
+    }
+
+    public void deactivate(Long instrumentId) {
+        Counter counter = counters.remove(instrumentId);
+        if (counter != null) counter.wakeUp(); // Checkouts waiting in awaitOpen take the database path now
+    }
+
+    /**
+     * A RESERVED result stays in flight until finished is called for it, whether the checkout commits or not.
+     */
+    public Reservation reserve(Long instrumentId, int quantity) {
+        Counter counter = counters.get(instrumentId);
+        if (counter == null) return Reservation.INACTIVE;
+
+        // Counted before the closing check, so close either sees this reservation or this reservation sees close
+        counter.inFlight.incrementAndGet();
+        if (counter.closing) {
+            finished(instrumentId);
+            return Reservation.CLOSING;
+        }
+
+        int current;
+        do {
+            current = counter.units.get();
+            if (current < quantity) {
+                finished(instrumentId);
+                return Reservation.SOLD_OUT;
+            }
+        } while (!counter.units.compareAndSet(current, current - quantity));
+        return Reservation.RESERVED;
+    }
+
+    public void finished(Long instrumentId) {
+        Counter counter = counters.get(instrumentId);
+        if (counter != null && counter.inFlight.decrementAndGet() == 0 && counter.closing) counter.wakeUp();
+    }
+
+    /**
+     * Stops new reservations and waits up to timeoutMs for the ones in flight to finish. Returns false, and
+     * reopens the counter, if they did not; true if they did or the instrument is not on sale.
+     */
+    public boolean close(Long instrumentId, long timeoutMs) throws InterruptedException {
+        Counter counter = counters.get(instrumentId);
+        if (counter == null) return true;
+
+        counter.closing = true;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (counter) {
+            try {
+                while (counter.inFlight.get() > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        reopen(instrumentId);
+                        return false;
+                    }
+                    counter.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                reopen(instrumentId);
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    public void reopen(Long instrumentId) {
+        Counter counter = counters.get(instrumentId);
+        if (counter == null) return;
+
+        counter.closing = false;
+        counter.wakeUp();
+    }
+
+    /**
+     * Waits while the sale of the instrument is ending. Callers must not hold a reservation in flight meanwhile,
+     * or two checkouts could each wait for a sale the other one keeps open.
+     */
+    public void awaitOpen(Long instrumentId) throws InterruptedException {
+        Counter counter = counters.get(instrumentId);
+        if (counter == null) return;
+
+        synchronized (counter) {
+            while (counter.closing && counters.get(instrumentId) == counter) counter.wait();
+        }
+    }
+
+    /**
+     * Takes units that were already reserved on the database path; the counter may drop below zero until they are released.
+     */
+    public boolean take(Long instrumentId, int quantity) {
+        Counter counter = counters.get(instrumentId);
+        if (counter == null) return false;
+
+        counter.units.addAndGet(-quantity);
+        return true;
+    }
+
+    public void release(Long instrumentId, int quantity) {
+        Counter counter = counters.get(instrumentId);
+        if (counter != null) counter.units.addAndGet(quantity);
+    }
+}
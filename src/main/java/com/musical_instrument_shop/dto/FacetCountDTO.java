@@ -0,0 +1,10 @@
+package com.musical_instrument_shop.dto;
+
+import lombok.Builder;
+
+@Builder
+public record FacetCountDTO(
+        String value,
+        String label,
+        long count
+) {}
@@ -0,0 +1,17 @@
+package com.musical_instrument_shop.dto;
+
+import com.musical_instrument_shop.core.enums.MovementType;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record InventoryMovementReadOnlyDTO(
+        Long id,
+        Long instrumentId,
+        MovementType type,
+        int quantity,
+        Long orderId,
+        boolean folded,
+        LocalDateTime createdAt
+) {}
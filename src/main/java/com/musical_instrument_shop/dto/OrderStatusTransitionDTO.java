@@ -0,0 +1,19 @@
+package com.musical_instrument_shop.dto;
+
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.Set;
+
+@Builder
+public record OrderStatusTransitionDTO(
+        @NotEmpty(message = "At least one order id is required")
+        @Size(max = 20000, message = "At most 20000 orders can be updated at once")
+        Set<@NotNull Long> ids,
+
+        @NotNull(message = "Order status is required")
+        OrderStatus status
+) {}
@@ -0,0 +1,16 @@
+package com.musical_instrument_shop.dto;
+
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Builder
+public record OrderSummaryDTO(
+        Long id,
+        LocalDateTime orderDate,
+        BigDecimal totalAmount,
+        OrderStatus status,
+        Long itemCount
+) {}
@@ -0,0 +1,12 @@
+package com.musical_instrument_shop.dto;
+
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.enums.TransitionOutcome;
+import lombok.Builder;
+
+@Builder
+public record OrderTransitionResultDTO(
+        Long id,
+        OrderStatus previousStatus,
+        TransitionOutcome outcome
+) {}
@@ -0,0 +1,11 @@
+package com.musical_instrument_shop.dto;
+
+import lombok.Builder;
+
+@Builder
+public record StockAvailabilityDTO(
+        Long instrumentId,
+        int stock,          // Snapshot in instruments.stock
+        long pendingChange, // Movements not folded into the snapshot yet
+        long available
+) {}
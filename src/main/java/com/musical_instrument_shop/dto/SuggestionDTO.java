@@ -0,0 +1,10 @@
+package com.musical_instrument_shop.dto;
+
+import lombok.Builder;
+
+@Builder
+public record SuggestionDTO(
+        String type,
+        Long id,
+        String name
+) {}
@@ -2,9 +2,12 @@ package com.musical_instrument_shop.mapper;
 
 import com.musical_instrument_shop.dto.*;
 import com.musical_instrument_shop.model.*;
+import com.musical_instrument_shop.repository.OrderItemRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.Set;
+
 @Component
 @RequiredArgsConstructor
 public class Mapper {
@@ -64,7 +67,7 @@ public class Mapper {
                 .name(instrument.getName())
                 .description(instrument.getDescription())
                 .price(instrument.getPrice())
-                .stock(instrument.getStock())
+                .stock(instrument.getStock() + instrument.getPendingStock())
                 .categoryId(instrument.getCategory().getId())
                 .categoryName(instrument.getCategory().getName())
                 .brandId(instrument.getBrand().getId())
@@ -72,6 +75,21 @@ public class Mapper {
                 .build();
     }
 
+    // Same as above, with names taken from the catalog snapshot so category/brand references are never initialized
+    public InstrumentReadOnlyDTO mapToInstrumentReadOnlyDTO(Instrument instrument, CategoryReadOnlyDTO category, BrandReadOnlyDTO brand) {
+        return InstrumentReadOnlyDTO.builder()
+                .id(instrument.getId())
+                .name(instrument.getName())
+                .description(instrument.getDescription())
+                .price(instrument.getPrice())
+                .stock(instrument.getStock() + instrument.getPendingStock())
+                .categoryId(category.id())
+                .categoryName(category.name())
+                .brandId(brand.id())
+                .brandName(brand.name())
+                .build();
+    }
+
     public Instrument mapToInstrumentEntity(InstrumentInsertDTO dto, Category category, Brand brand) {
         Instrument instrument = new Instrument();
         instrument.setName(dto.name());
@@ -98,6 +116,12 @@ public class Mapper {
     // ==================== ORDER ====================
 
     public OrderReadOnlyDTO mapToOrderReadOnlyDTO(Order order) {
+        return mapToOrderReadOnlyDTO(order, order.getItems().stream()
+                .map(this::mapToOrderItemReadOnlyDTO)
+                .collect(java.util.stream.Collectors.toSet()));
+    }
+
+    public OrderReadOnlyDTO mapToOrderReadOnlyDTO(Order order, Set<OrderItemReadOnlyDTO> items) {
         return OrderReadOnlyDTO.builder()
                 .id(order.getId())
                 .userId(order.getUser().getId())
@@ -105,9 +129,7 @@ public class Mapper {
                 .orderDate(order.getOrderDate())
                 .totalAmount(order.getTotalAmount())
                 .status(order.getStatus())
-                .items(order.getItems().stream()
-                        .map(this::mapToOrderItemReadOnlyDTO)
-                        .collect(java.util.stream.Collectors.toSet()))
+                .items(items)
                 .build();
     }
 
@@ -123,6 +145,30 @@ public class Mapper {
                 .build();
     }
 
+    public OrderItemReadOnlyDTO mapToOrderItemReadOnlyDTO(OrderItemRepository.OrderLine line) {
+        return OrderItemReadOnlyDTO.builder()
+                .id(line.getId())
+                .instrumentId(line.getInstrumentId())
+                .instrumentName(line.getInstrumentName())
+                .quantity(line.getQuantity())
+                .priceAtPurchase(line.getPriceAtPurchase())
+                .build();
+    }
+
+    // ==================== INVENTORY MOVEMENT ====================
+
+    public InventoryMovementReadOnlyDTO mapToInventoryMovementReadOnlyDTO(InventoryMovement movement) {
+        return InventoryMovementReadOnlyDTO.builder()
+                .id(movement.getId())
+                .instrumentId(movement.getInstrumentId())
+                .type(movement.getType())
+                .quantity(movement.getQuantity())
+                .orderId(movement.getOrderId())
+                .folded(movement.isFolded())
+                .createdAt(movement.getCreatedAt())
+                .build();
+    }
+
     // ==================== USER ====================
 
     public UserReadOnlyDTO mapToUserReadOnlyDTO(User user) {
@@ -0,0 +1,60 @@
+package com.musical_instrument_shop.model;
+
+import com.musical_instrument_shop.core.enums.IdempotencyStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_user_key", columnNames = {"user_id", "idempotency_key"})
+}, indexes = {
+        @Index(name = "idx_idempotency_expires_at", columnList = "expires_at")
+})
+public class IdempotencyKey extends AbstractEntity {
+
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String key;
+
+
+    // Fingerprint of the request body; the same key with a different body is rejected
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IdempotencyStatus status;
+
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+
+    // Serialized OrderReadOnlyDTO replayed to duplicates
+    @Column(name = "response_json", columnDefinition = "TEXT")
+    private String responseJson;
+
+
+    // In progress: when a crashed first request stops blocking the key. Completed: when the key may be reused.
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Formula;
 
 
 import java.math.BigDecimal;
@@ -37,10 +38,23 @@ public class Instrument extends AbstractEntity {
     private BigDecimal price;
 
 
-    @Column(nullable = false)
+    // Written only by relative updates (checkouts, ledger folds), so saving the entity never overwrites them
+    @Column(nullable = false, updatable = false)
     private int stock;
 
 
+    // Ledger movements not folded into stock yet (restocks, cancellations, flash-sale reservations);
+    // stock + pendingStock is the availability clients read and edit
+    @Formula("(select coalesce(sum(m.quantity), 0) from inventory_movements m where m.instrument_id = id and m.folded = false)")
+    private int pendingStock;
+
+
+    // Stock is reserved in memory and flushed in batches, see FlashSaleService.
+    // Written only by updateFlashSale, so saving the entity never undoes a sale started meanwhile
+    @Column(name = "flash_sale", nullable = false, updatable = false)
+    private boolean flashSale;
+
+
     @ManyToOne
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
@@ -0,0 +1,51 @@
+package com.musical_instrument_shop.model;
+
+import com.musical_instrument_shop.core.IdSequences;
+import com.musical_instrument_shop.core.enums.MovementType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inventory_movements", indexes = {
+        @Index(name = "idx_movement_instrument_folded", columnList = "instrument_id, folded"), // Pending stock per instrument
+        @Index(name = "idx_movement_folded", columnList = "folded")
+})
+public class InventoryMovement extends AbstractEntity {
+
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_movement_seq")
+    @SequenceGenerator(name = "inventory_movement_seq", sequenceName = "inventory_movements_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
+    private Long id;
+
+
+    // No foreign key: the ledger outlives deleted instruments
+    @Column(name = "instrument_id", nullable = false)
+    private Long instrumentId;
+
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MovementType type;
+
+
+    // Signed change of the instrument's stock
+    @Column(nullable = false)
+    private int quantity;
+
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+
+    // True once the quantity is part of instruments.stock
+    @Column(nullable = false)
+    private boolean folded;
+}
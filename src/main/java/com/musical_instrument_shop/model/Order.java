@@ -1,5 +1,6 @@
 package com.musical_instrument_shop.model;
 
+import com.musical_instrument_shop.core.IdSequences;
 import com.musical_instrument_shop.core.enums.OrderStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -18,12 +19,18 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_order_date", columnList = "order_date"),
+        @Index(name = "idx_order_user_date", columnList = "user_id, order_date, id"), // Order history seek
+        @Index(name = "idx_order_status_date", columnList = "status, order_date") // Fulfilment queue
+})
 public class Order extends AbstractEntity {
 
 
+    // Pooled ids let the order, its items and its ledger rows be inserted in JDBC batches, see IdSequences
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "orders_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
 
@@ -32,6 +39,7 @@ public class Order extends AbstractEntity {
     private User user;
 
 
+    @Column(name = "order_date")
     private LocalDateTime orderDate;
 
 
@@ -44,4 +52,13 @@ public class Order extends AbstractEntity {
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private Set<OrderItem> items = new HashSet<>();
+
+
+    // Fulfilment lease: the worker holding a PENDING order, until leaseExpiresAt. Expired leases can be claimed again.
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
 }
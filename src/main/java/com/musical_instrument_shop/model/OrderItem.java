@@ -1,5 +1,6 @@
 package com.musical_instrument_shop.model;
 
+import com.musical_instrument_shop.core.IdSequences;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -19,7 +20,8 @@ public class OrderItem extends AbstractEntity {
 
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_items_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
 
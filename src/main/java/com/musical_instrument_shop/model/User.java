@@ -40,6 +40,10 @@ public class User extends AbstractEntity implements UserDetails {
 
     @Enumerated(EnumType.STRING)
     private Role role;
+
+    // Bumped to revoke every token issued before; tokens carry the version they were issued with
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
     @OneToMany(mappedBy = "user")
     private Set<Order> orders = new HashSet<>();
 
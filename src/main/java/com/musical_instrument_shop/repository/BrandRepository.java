@@ -1,8 +1,11 @@
 package com.musical_instrument_shop.repository;
 
 import com.musical_instrument_shop.model.Brand;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,4 +17,11 @@ public interface BrandRepository extends JpaRepository<Brand, Long>,
     Optional<Brand> findByName(String name);
 
     boolean existsByName(String name);
+
+    @Query("select b from Brand b")
+    Slice<Brand> sliceAll(Pageable pageable);
+
+    // Rows written before auditing was enabled have no update time
+    @Query("select count(b) as rowCount, max(coalesce(b.updatedAt, b.createdAt)) as lastModified from Brand b")
+    TableVersion findTableVersion();
 }
@@ -1,8 +1,11 @@
 package com.musical_instrument_shop.repository;
 
 import com.musical_instrument_shop.model.Category;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,4 +17,11 @@ public interface CategoryRepository extends JpaRepository<Category, Long>,
     Optional<Category> findByName(String name);
 
     boolean existsByName(String name);
+
+    @Query("select c from Category c")
+    Slice<Category> sliceAll(Pageable pageable);
+
+    // Rows written before auditing was enabled have no update time
+    @Query("select count(c) as rowCount, max(coalesce(c.updatedAt, c.createdAt)) as lastModified from Category c")
+    TableVersion findTableVersion();
 }
\ No newline at end of file
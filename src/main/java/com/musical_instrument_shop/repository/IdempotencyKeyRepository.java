@@ -0,0 +1,31 @@
+package com.musical_instrument_shop.repository;
+
+import com.musical_instrument_shop.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    Optional<IdempotencyKey> findByUserIdAndKey(Long userId, String key);
+
+    // Only a live claim can be completed; 0 means it expired and a retry may already have taken the key over.
+    // Expired rows therefore never change again, so a retry can delete them without re-checking.
+    @Modifying
+    @Query("update IdempotencyKey k set k.status = com.musical_instrument_shop.core.enums.IdempotencyStatus.COMPLETED, "
+            + "k.orderId = :orderId, k.responseJson = :responseJson, k.expiresAt = :expiresAt, k.updatedAt = :now "
+            + "where k.id = :id and k.status = com.musical_instrument_shop.core.enums.IdempotencyStatus.IN_PROGRESS "
+            + "and k.expiresAt >= :now")
+    int complete(@Param("id") Long id, @Param("orderId") Long orderId, @Param("responseJson") String responseJson,
+                 @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,17 +1,32 @@
 package com.musical_instrument_shop.repository;
 
+import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
 import com.musical_instrument_shop.model.Instrument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface InstrumentRepository extends JpaRepository<Instrument, Long>,
-        JpaSpecificationExecutor<Instrument> {
+        JpaSpecificationExecutor<Instrument>, StockReservationRepository {
+
+    // Reads instruments straight into DTOs with their category and brand joined in the same statement,
+    // so no managed entities are created and no extra selects are issued per brand/category.
+    // Stock is the availability: the snapshot plus the ledger movements not folded yet.
+    String READ_ONLY_SELECT = "select new com.musical_instrument_shop.dto.InstrumentReadOnlyDTO("
+            + "i.id, i.name, i.description, i.price, i.stock + i.pendingStock, c.id, c.name, b.id, b.name) "
+            + "from Instrument i join i.category c join i.brand b";
 
     Page<Instrument> findByCategory_Id(Long categoryId, Pageable pageable);
 
@@ -20,4 +35,90 @@ public interface InstrumentRepository extends JpaRepository<Instrument, Long>,
     Page<Instrument> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
     List<Instrument> findByStockLessThan(int stock);
-}
\ No newline at end of file
+
+    @Query(READ_ONLY_SELECT + " where i.id = :id")
+    Optional<InstrumentReadOnlyDTO> findReadOnlyById(@Param("id") Long id);
+
+    @Query(value = READ_ONLY_SELECT,
+            countQuery = "select count(i) from Instrument i")
+    Page<InstrumentReadOnlyDTO> findAllReadOnly(Pageable pageable);
+
+    @Query(READ_ONLY_SELECT)
+    List<InstrumentReadOnlyDTO> findAllReadOnly();
+
+    @Query(value = READ_ONLY_SELECT + " where c.id = :categoryId",
+            countQuery = "select count(i) from Instrument i where i.category.id = :categoryId")
+    Page<InstrumentReadOnlyDTO> findReadOnlyByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query(value = READ_ONLY_SELECT + " where b.id = :brandId",
+            countQuery = "select count(i) from Instrument i where i.brand.id = :brandId")
+    Page<InstrumentReadOnlyDTO> findReadOnlyByBrandId(@Param("brandId") Long brandId, Pageable pageable);
+
+    @Query(value = READ_ONLY_SELECT + " where lower(i.name) like lower(concat('%', :name, '%'))",
+            countQuery = "select count(i) from Instrument i where lower(i.name) like lower(concat('%', :name, '%'))")
+    Page<InstrumentReadOnlyDTO> searchReadOnlyByName(@Param("name") String name, Pageable pageable);
+
+    @Query(READ_ONLY_SELECT + " where i.id in :ids")
+    List<InstrumentReadOnlyDTO> findReadOnlyByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(READ_ONLY_SELECT + " where i.id between :from and :to")
+    List<InstrumentReadOnlyDTO> findReadOnlyByIdBetween(@Param("from") Long from, @Param("to") Long to);
+
+    @Query(READ_ONLY_SELECT + " where b.id = :brandId")
+    List<InstrumentReadOnlyDTO> findAllReadOnlyByBrandId(@Param("brandId") Long brandId);
+
+    @Query(READ_ONLY_SELECT + " where c.id = :categoryId")
+    List<InstrumentReadOnlyDTO> findAllReadOnlyByCategoryId(@Param("categoryId") Long categoryId);
+
+    // Loads a whole cart in one statement; category and brand are fetched with it instead of one select each
+    @Query("select i from Instrument i join fetch i.category join fetch i.brand where i.id in :ids")
+    List<Instrument> findAllWithCatalogByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Folds ledger movements into the stock snapshot; they were checked when recorded, so there is no check here
+    @Modifying
+    @Query("update Instrument i set i.stock = i.stock + :change, i.updatedAt = :now where i.id = :id")
+    int addToStock(@Param("id") Long id, @Param("change") int change, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update Instrument i set i.flashSale = :flashSale where i.id = :id")
+    int updateFlashSale(@Param("id") Long id, @Param("flashSale") boolean flashSale);
+
+    @Query("select i.stock from Instrument i where i.id = :id")
+    Optional<Integer> findStockById(@Param("id") Long id);
+
+    // Holds the row until commit, so no checkout or fold changes the stock between this read and an adjustment
+    @Query(value = "select stock from instruments where id = :id for update", nativeQuery = true)
+    Optional<Integer> lockStockById(@Param("id") Long id);
+
+    // Same row lock as lockStockById; starting or ending a sale waits for it
+    @Query(value = "select flash_sale from instruments where id = :id for update", nativeQuery = true)
+    Optional<Boolean> lockFlashSaleById(@Param("id") Long id);
+
+    @Query("select i.id from Instrument i where i.flashSale = true")
+    List<Long> findFlashSaleIds();
+
+    // Version of a single instrument for conditional GETs; rows from before auditing only have created_at
+    @Query("select coalesce(i.updatedAt, i.createdAt) from Instrument i where i.id = :id")
+    Optional<LocalDateTime> findVersionById(@Param("id") Long id);
+
+    @Query("select max(i.id) from Instrument i")
+    Long findMaxId();
+
+    // Stock updates set updated_at as well, so checkouts and folds move the version too
+    @Query("select count(i) as rowCount, max(coalesce(i.updatedAt, i.createdAt)) as lastModified from Instrument i")
+    TableVersion findTableVersion();
+
+    // Slice variants: fetch one row more than the page size instead of running the count query
+
+    @Query(READ_ONLY_SELECT)
+    Slice<InstrumentReadOnlyDTO> sliceAllReadOnly(Pageable pageable);
+
+    @Query(READ_ONLY_SELECT + " where c.id = :categoryId")
+    Slice<InstrumentReadOnlyDTO> sliceReadOnlyByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query(READ_ONLY_SELECT + " where b.id = :brandId")
+    Slice<InstrumentReadOnlyDTO> sliceReadOnlyByBrandId(@Param("brandId") Long brandId, Pageable pageable);
+
+    @Query(READ_ONLY_SELECT + " where lower(i.name) like lower(concat('%', :name, '%'))")
+    Slice<InstrumentReadOnlyDTO> sliceReadOnlyByName(@Param("name") String name, Pageable pageable);
+}
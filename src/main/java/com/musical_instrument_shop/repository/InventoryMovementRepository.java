@@ -0,0 +1,43 @@
+package com.musical_instrument_shop.repository;
+
+import com.musical_instrument_shop.model.InventoryMovement;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long> {
+
+    @Query("select m.id as id, m.instrumentId as instrumentId, m.quantity as quantity "
+            + "from InventoryMovement m where m.folded = false order by m.id")
+    List<UnfoldedMovement> findUnfolded(Limit limit);
+
+    // Locking read: sees movements committed after the transaction's snapshot was taken, and holds them until the fold commits
+    @Query(value = "select id as id, instrument_id as instrumentId, quantity as quantity from inventory_movements "
+            + "where folded = false and instrument_id = :instrumentId for update", nativeQuery = true)
+    List<UnfoldedMovement> lockUnfoldedByInstrumentId(@Param("instrumentId") Long instrumentId);
+
+    @Query("select sum(m.quantity) from InventoryMovement m where m.folded = false and m.instrumentId = :instrumentId")
+    Long sumUnfoldedByInstrumentId(@Param("instrumentId") Long instrumentId);
+
+    // Only rows still unfolded are marked, so the count tells whether another fold got there first
+    @Modifying
+    @Query("update InventoryMovement m set m.folded = true where m.id in :ids and m.folded = false")
+    int markFolded(@Param("ids") Collection<Long> ids);
+
+    Slice<InventoryMovement> findByInstrumentId(Long instrumentId, Pageable pageable);
+
+    interface UnfoldedMovement {
+        Long getId();
+        Long getInstrumentId();
+        Integer getQuantity();
+    }
+}
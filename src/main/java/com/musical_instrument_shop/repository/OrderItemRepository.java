@@ -2,12 +2,51 @@ package com.musical_instrument_shop.repository;
 
 import com.musical_instrument_shop.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
     List<OrderItem> findByOrder_Id(Long orderId);
+
+    @Query("select oi.instrument.id as instrumentId, sum(oi.quantity) as units from OrderItem oi group by oi.instrument.id")
+    List<InstrumentSales> sumUnitsByInstrument();
+
+    // Items of a page of orders in one statement. Scalar columns only, so instruments and their eager
+    // category/brand are never loaded as entities.
+    @Query("select oi.order.id as orderId, oi.id as id, i.id as instrumentId, i.name as instrumentName, "
+            + "oi.quantity as quantity, oi.priceAtPurchase as priceAtPurchase "
+            + "from OrderItem oi join oi.instrument i where oi.order.id in :orderIds")
+    List<OrderLine> findLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    // Units to give back per order and instrument when a batch of orders is cancelled
+    @Query("select oi.order.id as orderId, oi.instrument.id as instrumentId, sum(oi.quantity) as units "
+            + "from OrderItem oi where oi.order.id in :orderIds group by oi.order.id, oi.instrument.id")
+    List<OrderUnits> sumUnitsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    interface InstrumentSales {
+        Long getInstrumentId();
+        Long getUnits();
+    }
+
+    interface OrderUnits {
+        Long getOrderId();
+        Long getInstrumentId();
+        Long getUnits();
+    }
+
+    interface OrderLine {
+        Long getOrderId();
+        Long getId();
+        Long getInstrumentId();
+        String getInstrumentName();
+        Integer getQuantity();
+        BigDecimal getPriceAtPurchase();
+    }
 }
\ No newline at end of file
@@ -1,22 +1,131 @@
 package com.musical_instrument_shop.repository;
 
+import com.musical_instrument_shop.dto.OrderSummaryDTO;
 import com.musical_instrument_shop.model.Order;
 import com.musical_instrument_shop.core.enums.OrderStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long>,
         JpaSpecificationExecutor<Order> {
 
+    // Order history rows, newest first. The item count is a correlated count on order_items' order_id index,
+    // so no OrderItem is loaded; the seek runs on idx_order_user_date (user_id, order_date, id).
+    String HISTORY_SELECT = "select new com.musical_instrument_shop.dto.OrderSummaryDTO("
+            + "o.id, o.orderDate, o.totalAmount, o.status, (select count(oi) from OrderItem oi where oi.order = o)) "
+            + "from Order o where o.user.id = :userId";
+    String HISTORY_ORDER = " order by o.orderDate desc, o.id desc";
+
+    // Listings fetch the user with the order; items are loaded per page with OrderItemRepository.findLinesByOrderIdIn
+
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Page<Order> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
     Page<Order> findByUser_Id(Long userId, Pageable pageable);
 
     List<Order> findByStatus(OrderStatus status);
 
     Page<Order> findByStatusAndUser_Id(OrderStatus status, Long userId, Pageable pageable);
-}
\ No newline at end of file
+
+    @EntityGraph(attributePaths = "user")
+    @Query("select o from Order o")
+    Slice<Order> sliceAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    @Query("select o from Order o where o.user.id = :userId")
+    Slice<Order> sliceByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Oldest claimable PENDING orders, row-locked until commit. SKIP LOCKED passes over rows another worker is
+    // claiming right now instead of waiting for them, so concurrent claims never return the same order.
+    @Query(value = "select id from orders where status = 'PENDING' "
+            + "and (lease_expires_at is null or lease_expires_at < :now) "
+            + "order by order_date, id limit :count for update skip locked", nativeQuery = true)
+    List<Long> lockClaimableIds(@Param("now") LocalDateTime now, @Param("count") int count);
+
+    @Modifying
+    @Query("update Order o set o.claimedBy = :worker, o.leaseExpiresAt = :leaseExpiresAt, o.updatedAt = :now where o.id in :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("worker") String worker,
+              @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt, @Param("now") LocalDateTime now);
+
+    // Confirms only while the caller still holds a live lease, so an order whose lease expired and was
+    // claimed again cannot be processed twice
+    @Modifying
+    @Query("update Order o set o.status = com.musical_instrument_shop.core.enums.OrderStatus.CONFIRMED, "
+            + "o.claimedBy = null, o.leaseExpiresAt = null, o.updatedAt = :now "
+            + "where o.id = :id and o.status = com.musical_instrument_shop.core.enums.OrderStatus.PENDING "
+            + "and o.claimedBy = :worker and o.leaseExpiresAt >= :now")
+    int confirmLeased(@Param("id") Long id, @Param("worker") String worker, @Param("now") LocalDateTime now);
+
+    // Stale PENDING orders for the expiry job, walked in (order_date, id) order on idx_order_status_date
+    @Query("select o.id as id, o.orderDate as orderDate from Order o "
+            + "where o.status = com.musical_instrument_shop.core.enums.OrderStatus.PENDING and o.orderDate < :cutoff "
+            + "order by o.orderDate, o.id")
+    List<ExpiryCandidate> findExpiryCandidates(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Query("select o.id as id, o.orderDate as orderDate from Order o "
+            + "where o.status = com.musical_instrument_shop.core.enums.OrderStatus.PENDING and o.orderDate < :cutoff "
+            + "and (o.orderDate > :orderDate or (o.orderDate = :orderDate and o.id > :id)) order by o.orderDate, o.id")
+    List<ExpiryCandidate> findExpiryCandidatesAfter(@Param("cutoff") LocalDateTime cutoff, @Param("orderDate") LocalDateTime orderDate,
+                                                    @Param("id") Long id, Limit limit);
+
+    // Locks the orders of an expiry chunk that are still stale, PENDING and not leased to a picker.
+    // Rows locked by a checkout, a picker or a bulk change are skipped rather than waited for.
+    @Query(value = "select id from orders where id in :ids and status = 'PENDING' and order_date < :cutoff "
+            + "and (lease_expires_at is null or lease_expires_at < :now) order by id for update skip locked", nativeQuery = true)
+    List<Long> lockExpirableIds(@Param("ids") Collection<Long> ids, @Param("cutoff") LocalDateTime cutoff,
+                                @Param("now") LocalDateTime now);
+
+    // Locks a chunk of a bulk status change in ascending id order, so concurrent bulk changes cannot deadlock
+    @Query(value = "select id as id, status as status from orders where id in :ids order by id for update", nativeQuery = true)
+    List<OrderStatusRow> lockStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Order o set o.status = :status, o.claimedBy = null, o.leaseExpiresAt = null, o.updatedAt = :now where o.id in :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status, @Param("now") LocalDateTime now);
+
+    // Single-order status change: the status is checked and changed under the row lock, like a bulk chunk
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id = :id")
+    Optional<Order> findForUpdateById(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = "user")
+    @Query("select o from Order o where o.id in :ids order by o.orderDate, o.id")
+    List<Order> findWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    List<OrderSummaryDTO> findHistory(@Param("userId") Long userId, Limit limit);
+
+    // Spelled out instead of a row-value comparison, which MySQL does not turn into an index range
+    @Query(HISTORY_SELECT + " and (o.orderDate < :orderDate or (o.orderDate = :orderDate and o.id < :id))" + HISTORY_ORDER)
+    List<OrderSummaryDTO> findHistoryBefore(@Param("userId") Long userId, @Param("orderDate") LocalDateTime orderDate,
+                                            @Param("id") Long id, Limit limit);
+
+    interface ExpiryCandidate {
+        Long getId();
+        LocalDateTime getOrderDate();
+    }
+
+    interface OrderStatusRow {
+        Long getId();
+        String getStatus();
+    }
+}
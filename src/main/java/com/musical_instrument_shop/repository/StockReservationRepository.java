@@ -0,0 +1,14 @@
+package com.musical_instrument_shop.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface StockReservationRepository {
+
+    /**
+     * Subtracts every quantity from its instrument's stock in one statement that only touches rows with enough
+     * stock left. Returns the number of instruments updated: fewer than quantities.size() means at least one
+     * instrument is missing or short, and the caller must roll back.
+     */
+    int reserveStock(Map<Long, Integer> quantities, LocalDateTime now);
+}
@@ -0,0 +1,44 @@
+package com.musical_instrument_shop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Builds the multi-row update by hand: JPQL has no way to bind a variable number of CASE branches.
+ * Rows are updated, and so locked, in ascending id order like every other stock update.
+ */
+public class StockReservationRepositoryImpl implements StockReservationRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int reserveStock(Map<Long, Integer> quantities, LocalDateTime now) {
+        if (quantities.isEmpty()) return 0;
+
+        // ?1 holds the timestamp, then an (id, quantity) pair per instrument; each pair is referenced twice
+        StringBuilder quantity = new StringBuilder("case id");
+        StringJoiner ids = new StringJoiner(", ", "(", ")");
+        int position = 2;
+        for (int i = 0; i < quantities.size(); i++, position += 2) {
+            quantity.append(" when ?").append(position).append(" then ?").append(position + 1);
+            ids.add("?" + position);
+        }
+        quantity.append(" end");
+
+        Query update = entityManager.createNativeQuery("update instruments set stock = stock - " + quantity
+                + ", updated_at = ?1 where id in " + ids + " and stock >= " + quantity + " order by id");
+        update.setParameter(1, now);
+        position = 2;
+        for (Map.Entry<Long, Integer> reservation : quantities.entrySet()) {
+            update.setParameter(position++, reservation.getKey());
+            update.setParameter(position++, reservation.getValue());
+        }
+        return update.executeUpdate();
+    }
+}
@@ -0,0 +1,21 @@
+package com.musical_instrument_shop.repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Row count and latest change of a catalog table. Inserts and updates move the latest change and deletes
+ * move the count, so together they version a listing the same way on every instance.
+ */
+public interface TableVersion {
+
+    long getRowCount();
+
+    LocalDateTime getLastModified(); // Null for an empty table
+
+    default Instant lastModifiedAt() {
+        LocalDateTime lastModified = getLastModified();
+        return lastModified != null ? lastModified.atZone(ZoneId.systemDefault()).toInstant() : Instant.EPOCH;
+    }
+}
@@ -4,6 +4,9 @@ package com.musical_instrument_shop.repository;
 import com.musical_instrument_shop.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
@@ -12,4 +15,11 @@ public interface UserRepository extends JpaRepository<User, Long>,
 
     Optional<User> findByUsername(String username);
 
+    @Query("select u.tokenVersion from User u where u.username = :username")
+    Optional<Integer> findTokenVersionByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.username = :username")
+    int incrementTokenVersion(@Param("username") String username);
+
 }
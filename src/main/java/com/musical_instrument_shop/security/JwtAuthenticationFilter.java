@@ -1,6 +1,9 @@
 package com.musical_instrument_shop.security;
 
+import com.musical_instrument_shop.authentication.JwtPrincipal;
 import com.musical_instrument_shop.authentication.JwtService;
+import com.musical_instrument_shop.authentication.TokenVersionService;
+import com.musical_instrument_shop.authentication.UserPrincipal;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
@@ -8,10 +11,12 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -19,12 +24,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 
 //This custom filter runs before Spring Security's built-in filters for every request that requires authentication (i.e., every endpoint except /api/auth).
 //Core Action	1. Extracts the JWT from the Authorization: Bearer <token> header.
-// 2. Uses JwtService to extract the username and validate the token.
-// 3. Loads the full UserDetails via the UserDetailsService.
+// 2. Uses JwtService to verify the token once and read the username from the verified principal.
+// 3. In stateless mode builds the authentication from the token claims (plus a cached token version check),
+//    otherwise loads the full UserDetails via the UserDetailsService.
 // 4.If valid, it creates an Authentication object and places it into the SecurityContextHolder, allowing the request to proceed as an authenticated user.
 @RequiredArgsConstructor
 @Component
@@ -32,6 +39,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;               // Service for JWT token handling (creation, validation, extraction)
     private final UserDetailsService userDetailsService; // Spring Security service to load user details by username
+    private final TokenVersionService tokenVersionService; // Cached per-user token versions used for revocation
+
+    @Value("${app.security.stateless-authentication:true}")
+    private boolean statelessAuthentication; // Authenticate from JWT claims instead of loading the user on every request
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -51,23 +62,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7).trim();
 
         try {
-            // Extract username (subject) from JWT token
-            username = jwtService.extractSubject(jwt);
+            // Verify signature and expiration once, then read everything from the verified principal
+            JwtPrincipal principal = jwtService.verify(jwt);
+            username = principal.subject();
 
             // If username is not null and user not yet authenticated in this context
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Load user details from DB (or wherever) by username
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                // Validate token is still valid and matches user details
-                if (!jwtService.isTokenValid(jwt, userDetails)) {
-                    throw new BadCredentialsException("Invalid Token");
-                }
-
-                // Create authentication token for Spring Security context with user details and authorities
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities()
-                );
+                UsernamePasswordAuthenticationToken authToken = statelessAuthentication
+                        ? authenticateFromClaims(principal)
+                        : authenticateFromUserDetails(principal);
 
                 // Set authentication into the SecurityContext (mark user as authenticated)
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -86,5 +89,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Continue with the filter chain (request processing)
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Stateless mode: builds the authentication from the verified claims alone.
+     * Only the (cached) token version is checked, so no user row is loaded.
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(JwtPrincipal principal) {
+        if (!tokenVersionService.isCurrent(principal)) {
+            throw new BadCredentialsException("Revoked token");
+        }
+
+        List<SimpleGrantedAuthority> authorities = principal.role() == null
+                ? List.of()
+                : List.of(new SimpleGrantedAuthority(principal.role()));
+        return new UsernamePasswordAuthenticationToken(principal, null, authorities);
+    }
+
+    /**
+     * Loads the full UserDetails, for deployments that need the current account state on every request.
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromUserDetails(JwtPrincipal principal) {
+        // Load user details from DB (or wherever) by username
+        UserDetails userDetails = userDetailsService.loadUserByUsername(principal.subject());
+
+        // Validate token is still valid and matches user details
+        if (!jwtService.isTokenValid(principal, userDetails)) {
+            throw new BadCredentialsException("Invalid Token");
+        }
+        if (userDetails instanceof UserPrincipal user && user.tokenVersion() != principal.tokenVersion()) {
+            throw new BadCredentialsException("Revoked token");
+        }
+
+        // Create authentication token for Spring Security context with user details and authorities
+        return new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities()
+        );
+    }
 }
 
@@ -50,6 +50,7 @@ public class SecurityConfig {
                 .cors(httpSecurityCorsConfigurer -> httpSecurityCorsConfigurer.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(request -> request
                                 .requestMatchers("/api/email/**").permitAll()
+                                .requestMatchers("/api/auth/revoke").authenticated() // Revoking tokens needs a valid token
                                 .requestMatchers("/api/auth/**").permitAll() // Allow open access to auth endpoints
 //                        .requestMatchers(org.springframework.http.HttpMethod.DELETE, "/api/users/**")
 //                        .hasAuthority("ROLE_ADMIN")  // Only users with role ADMIN can DELETE on /users/**
@@ -84,6 +85,8 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(List.of("*")); // allow all HTTP methods
         configuration.setAllowedHeaders(List.of("*")); // allow all headers
+        // ETag goes back in If-None-Match; Idempotent-Replayed marks an order response replayed for a retry
+        configuration.setExposedHeaders(List.of("ETag", "Idempotent-Replayed"));
         configuration.setAllowCredentials(true); // allow Authorization header
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -1,8 +1,16 @@
 package com.musical_instrument_shop.service;
 
+import com.musical_instrument_shop.core.cache.CatalogSnapshot;
+import com.musical_instrument_shop.core.cache.CatalogVersion;
+import com.musical_instrument_shop.core.cache.ResourceVersion;
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
 import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
+import com.musical_instrument_shop.core.filters.KeysetPager;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.BrandInsertDTO;
 import com.musical_instrument_shop.dto.BrandReadOnlyDTO;
 import com.musical_instrument_shop.dto.BrandUpdateDTO;
@@ -12,6 +20,7 @@ import com.musical_instrument_shop.repository.BrandRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -23,8 +32,14 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class BrandService implements IBrandService {
 
+    private static final KeysetPager<Brand> BRAND_KEYSET = new KeysetPager<>(Brand::getId)
+            .column("name", value -> value, Brand::getName);
+
     private final BrandRepository brandRepository;
     private final Mapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogSnapshot catalogSnapshot;
+    private final CatalogVersion catalogVersion;
 
     @Transactional(rollbackOn = Exception.class)
     public BrandReadOnlyDTO saveBrand(BrandInsertDTO dto) throws AppObjectAlreadyExists {
@@ -34,22 +49,58 @@ public class BrandService implements IBrandService {
 
         Brand brand = mapper.mapToBrandEntity(dto);
         Brand savedBrand = brandRepository.save(brand);
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(CatalogChangedEvent.Target.BRAND, savedBrand.getId()));
         log.info("Brand with name={} saved.", dto.name());
         return mapper.mapToBrandReadOnlyDTO(savedBrand);
     }
 
     public BrandReadOnlyDTO getOneBrand(Long id) throws AppObjectNotFoundException {
-        return brandRepository.findById(id)
-                .map(mapper::mapToBrandReadOnlyDTO)
+        return catalogSnapshot.brand(id)
+                .orElseThrow(() -> new AppObjectNotFoundException("Brand", "Brand with id " + id + " not found"));
+    }
+
+    public ResourceVersion getBrandVersion(Long id) throws AppObjectNotFoundException {
+        return catalogSnapshot.brandVersion(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Brand", "Brand with id " + id + " not found"));
     }
 
+    public ResourceVersion getBrandsVersion() {
+        return catalogVersion.brandListing();
+    }
+
     public Paginated<BrandReadOnlyDTO> getPaginatedBrands(Pageable pageable) {
+        var snapshotPage = catalogSnapshot.brandPage(pageable);
+        if (snapshotPage.isPresent()) {
+            log.debug("Paginated brands returned from snapshot");
+            return Paginated.fromPage(snapshotPage.get());
+        }
+
         var paginatedBrands = brandRepository.findAll(pageable);
         log.debug("Paginated brands returned successfully");
         return Paginated.fromPage(paginatedBrands.map(mapper::mapToBrandReadOnlyDTO));
     }
 
+    public SlicedPaginated<BrandReadOnlyDTO> getSlicedBrands(Pageable pageable) {
+        var snapshotPage = catalogSnapshot.brandPage(pageable);
+        if (snapshotPage.isPresent()) {
+            log.debug("Sliced brands returned from snapshot");
+            return SlicedPaginated.fromSlice(snapshotPage.get());
+        }
+
+        var slicedBrands = brandRepository.sliceAll(pageable);
+        log.debug("Sliced brands returned successfully");
+        return SlicedPaginated.fromSlice(slicedBrands.map(mapper::mapToBrandReadOnlyDTO));
+    }
+
+    public KeysetPaginated<BrandReadOnlyDTO> getBrandsAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException {
+        var brands = brandRepository.findBy(BRAND_KEYSET.seek(after, pageable), query -> query
+                .sortBy(BRAND_KEYSET.sort(pageable))
+                .limit(BRAND_KEYSET.limit(pageable))
+                .all());
+        log.debug("Keyset page of brands returned successfully");
+        return BRAND_KEYSET.page(brands, pageable, mapper::mapToBrandReadOnlyDTO);
+    }
+
     @Transactional(rollbackOn = Exception.class)
     public BrandReadOnlyDTO updateBrand(BrandUpdateDTO dto) throws AppObjectNotFoundException, AppObjectAlreadyExists {
         Brand existingBrand = brandRepository.findById(dto.id())
@@ -61,6 +112,7 @@ public class BrandService implements IBrandService {
 
         Brand brand = mapper.mapToBrandEntity(dto);
         Brand updatedBrand = brandRepository.save(brand);
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(CatalogChangedEvent.Target.BRAND, updatedBrand.getId()));
         log.info("Brand with id={} updated.", dto.id());
         return mapper.mapToBrandReadOnlyDTO(updatedBrand);
     }
@@ -70,6 +122,7 @@ public class BrandService implements IBrandService {
         Brand brand = brandRepository.findById(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Brand", "Brand with id " + id + " not found"));
         brandRepository.delete(brand);
+        eventPublisher.publishEvent(CatalogChangedEvent.deleted(CatalogChangedEvent.Target.BRAND, id));
         log.info("Brand with id={} deleted.", id);
     }
 }
\ No newline at end of file
@@ -1,8 +1,16 @@
 package com.musical_instrument_shop.service;
 
+import com.musical_instrument_shop.core.cache.CatalogSnapshot;
+import com.musical_instrument_shop.core.cache.CatalogVersion;
+import com.musical_instrument_shop.core.cache.ResourceVersion;
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
 import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
+import com.musical_instrument_shop.core.filters.KeysetPager;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.CategoryInsertDTO;
 import com.musical_instrument_shop.dto.CategoryReadOnlyDTO;
 import com.musical_instrument_shop.dto.CategoryUpdateDTO;
@@ -12,6 +20,7 @@ import com.musical_instrument_shop.repository.CategoryRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -20,8 +29,14 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class CategoryService implements ICategoryService {
 
+    private static final KeysetPager<Category> CATEGORY_KEYSET = new KeysetPager<>(Category::getId)
+            .column("name", value -> value, Category::getName);
+
     private final CategoryRepository categoryRepository;
     private final Mapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogSnapshot catalogSnapshot;
+    private final CatalogVersion catalogVersion;
 
     @Transactional(rollbackOn = Exception.class)
     public CategoryReadOnlyDTO saveCategory(CategoryInsertDTO dto) throws AppObjectAlreadyExists {
@@ -31,22 +46,58 @@ public class CategoryService implements ICategoryService {
 
         Category category = mapper.mapToCategoryEntity(dto);
         Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(CatalogChangedEvent.Target.CATEGORY, savedCategory.getId()));
         log.info("Category with name={} saved.", dto.name());
         return mapper.mapToCategoryReadOnlyDTO(savedCategory);
     }
 
     public CategoryReadOnlyDTO getOneCategory(Long id) throws AppObjectNotFoundException {
-        return categoryRepository.findById(id)
-                .map(mapper::mapToCategoryReadOnlyDTO)
+        return catalogSnapshot.category(id)
+                .orElseThrow(() -> new AppObjectNotFoundException("Category", "Category with id " + id + " not found"));
+    }
+
+    public ResourceVersion getCategoryVersion(Long id) throws AppObjectNotFoundException {
+        return catalogSnapshot.categoryVersion(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Category", "Category with id " + id + " not found"));
     }
 
+    public ResourceVersion getCategoriesVersion() {
+        return catalogVersion.categoryListing();
+    }
+
     public Paginated<CategoryReadOnlyDTO> getPaginatedCategories(Pageable pageable) {
+        var snapshotPage = catalogSnapshot.categoryPage(pageable);
+        if (snapshotPage.isPresent()) {
+            log.debug("Paginated categories returned from snapshot");
+            return Paginated.fromPage(snapshotPage.get());
+        }
+
         var paginatedCategories = categoryRepository.findAll(pageable);
         log.debug("Paginated categories returned successfully");
         return Paginated.fromPage(paginatedCategories.map(mapper::mapToCategoryReadOnlyDTO));
     }
 
+    public SlicedPaginated<CategoryReadOnlyDTO> getSlicedCategories(Pageable pageable) {
+        var snapshotPage = catalogSnapshot.categoryPage(pageable);
+        if (snapshotPage.isPresent()) {
+            log.debug("Sliced categories returned from snapshot");
+            return SlicedPaginated.fromSlice(snapshotPage.get());
+        }
+
+        var slicedCategories = categoryRepository.sliceAll(pageable);
+        log.debug("Sliced categories returned successfully");
+        return SlicedPaginated.fromSlice(slicedCategories.map(mapper::mapToCategoryReadOnlyDTO));
+    }
+
+    public KeysetPaginated<CategoryReadOnlyDTO> getCategoriesAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException {
+        var categories = categoryRepository.findBy(CATEGORY_KEYSET.seek(after, pageable), query -> query
+                .sortBy(CATEGORY_KEYSET.sort(pageable))
+                .limit(CATEGORY_KEYSET.limit(pageable))
+                .all());
+        log.debug("Keyset page of categories returned successfully");
+        return CATEGORY_KEYSET.page(categories, pageable, mapper::mapToCategoryReadOnlyDTO);
+    }
+
     @Transactional(rollbackOn = Exception.class)
     public CategoryReadOnlyDTO updateCategory(CategoryUpdateDTO dto) throws AppObjectNotFoundException, AppObjectAlreadyExists {
         Category existingCategory = categoryRepository.findById(dto.id())
@@ -58,6 +109,7 @@ public class CategoryService implements ICategoryService {
 
         Category category = mapper.mapToCategoryEntity(dto);
         Category updatedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(CatalogChangedEvent.Target.CATEGORY, updatedCategory.getId()));
         log.info("Category with id={} updated.", dto.id());
         return mapper.mapToCategoryReadOnlyDTO(updatedCategory);
     }
@@ -67,6 +119,7 @@ public class CategoryService implements ICategoryService {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Category", "Category with id " + id + " not found"));
         categoryRepository.delete(category);
+        eventPublisher.publishEvent(CatalogChangedEvent.deleted(CatalogChangedEvent.Target.CATEGORY, id));
         log.info("Category with id={} deleted.", id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.stock.FlashSaleStock;
+import com.musical_instrument_shop.dto.OrderItemInsertDTO;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Flash-sale mode: checkouts of the instrument reserve units from an in-memory counter instead of updating
+ * its row, and record them as unfolded inventory movements that InventoryService folds into instruments.stock
+ * in batches. After a crash the counter is re-seeded from the snapshot plus the movements not folded yet.
+ * Starting a sale seeds the counter under the instrument row lock, so database-path checkouts cannot change the
+ * stock meanwhile. Ending a sale closes the counter and waits for the reservations in flight to commit or roll back
+ * before it folds the ledger, so the database path never sells units the counter already sold.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FlashSaleService implements IFlashSaleService {
+
+    private final InstrumentRepository instrumentRepository;
+    private final InventoryService inventoryService;
+    private final FlashSaleStock flashSaleStock;
+
+    @Value("${app.flash-sale.drain-timeout-ms:5000}")
+    private long drainTimeoutMs;
+
+    // Runs before the web server accepts checkouts
+    @PostConstruct
+    void recover() {
+        for (Long instrumentId : instrumentRepository.findFlashSaleIds()) {
+            activate(instrumentId);
+        }
+    }
+
+    @Transactional(rollbackOn = Exception.class)
+    public void startFlashSale(Long instrumentId) throws AppObjectNotFoundException {
+        if (instrumentRepository.updateFlashSale(instrumentId, true) == 0) {
+            throw new AppObjectNotFoundException("Instrument", "Instrument with id " + instrumentId + " not found");
+        }
+        if (flashSaleStock.isActive(instrumentId)) return;
+
+        // Seeded under the row lock: checkouts blocked on it take their units from the counter too (absorb)
+        activate(instrumentId);
+        afterRollback(() -> flashSaleStock.deactivate(instrumentId));
+        log.info("Flash sale started for instrument with id={}", instrumentId);
+    }
+
+    @Transactional(rollbackOn = Exception.class)
+    public void endFlashSale(Long instrumentId) throws AppObjectNotFoundException, AppServerException {
+        // Drained before any row is touched: the order lines of a checkout in flight wait on the instrument row lock
+        drain(instrumentId);
+        afterCompletion(committed -> {
+            if (committed) flashSaleStock.deactivate(instrumentId); // Waiting checkouts take the database path
+            else flashSaleStock.reopen(instrumentId);
+        });
+
+        if (instrumentRepository.updateFlashSale(instrumentId, false) == 0) {
+            throw new AppObjectNotFoundException("Instrument", "Instrument with id " + instrumentId + " not found");
+        }
+        inventoryService.foldInstrument(instrumentId);
+        log.info("Flash sale ended for instrument with id={}", instrumentId);
+    }
+
+    /**
+     * Rejects the order if it contains a sold-out flash-sale instrument. Needs no database access,
+     * so it can run before the checkout transaction starts.
+     */
+    public void rejectSoldOut(Set<OrderItemInsertDTO> items) throws AppObjectInvalidArgumentException {
+        for (OrderItemInsertDTO item : items) {
+            if (flashSaleStock.isSoldOut(item.instrumentId())) {
+                throw new AppObjectInvalidArgumentException("Instrument", "Instrument with id " + item.instrumentId() + " is sold out");
+            }
+        }
+    }
+
+    /**
+     * Reserves the order's flash-sale units in memory and returns them per instrument id.
+     * Must run inside the checkout transaction: the units are given back if it does not commit.
+     */
+    public Map<Long, Integer> reserve(Set<OrderItemInsertDTO> items) throws AppObjectInvalidArgumentException {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        items.stream()
+                .filter(item -> flashSaleStock.isActive(item.instrumentId()))
+                .forEach(item -> quantities.merge(item.instrumentId(), item.quantity(), Integer::sum));
+        if (quantities.isEmpty()) return Map.of();
+
+        Map<Long, Integer> reserved = new HashMap<>();
+        afterCompletion(committed -> {
+            if (!committed) reserved.forEach(flashSaleStock::release);
+            reserved.keySet().forEach(flashSaleStock::finished);
+        });
+
+        retry:
+        while (true) {
+            awaitOpen(quantities.keySet()); // Holds no reservation while waiting, see FlashSaleStock.awaitOpen
+            for (Map.Entry<Long, Integer> reservation : quantities.entrySet()) {
+                switch (flashSaleStock.reserve(reservation.getKey(), reservation.getValue())) {
+                    case RESERVED -> reserved.put(reservation.getKey(), reservation.getValue());
+                    case SOLD_OUT -> throw new AppObjectInvalidArgumentException("Instrument",
+                            "Insufficient stock for instrument with id " + reservation.getKey());
+                    case INACTIVE -> { } // The sale just ended; the database path reserves it instead
+                    case CLOSING -> {
+                        // The sale started ending after the wait: give everything back and wait for it
+                        reserved.forEach((instrumentId, units) -> {
+                            flashSaleStock.release(instrumentId, units);
+                            flashSaleStock.finished(instrumentId);
+                        });
+                        reserved.clear();
+                        continue retry;
+                    }
+                }
+            }
+            return reserved;
+        }
+    }
+
+    /**
+     * Takes units a checkout reserved on the database path from the counters of instruments whose sale started
+     * while it waited on the row lock. Must run inside the checkout transaction: the units are given back if it does not commit.
+     */
+    public void absorb(Map<Long, Integer> units) {
+        Map<Long, Integer> taken = new HashMap<>();
+        units.forEach((instrumentId, quantity) -> {
+            if (flashSaleStock.take(instrumentId, quantity)) taken.put(instrumentId, quantity);
+        });
+        if (!taken.isEmpty()) afterRollback(() -> taken.forEach(flashSaleStock::release));
+    }
+
+    /**
+     * Gives units of a cancelled order back to the counter once the cancellation commits.
+     */
+    public void release(Map<Long, Integer> units) {
+        afterCommit(() -> units.forEach(flashSaleStock::release));
+    }
+
+    private void drain(Long instrumentId) throws AppServerException {
+        try {
+            if (flashSaleStock.close(instrumentId, drainTimeoutMs)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new AppServerException("FlashSale", "Checkouts of instrument with id " + instrumentId + " are still in progress, try again");
+    }
+
+    private void awaitOpen(Set<Long> instrumentIds) throws AppObjectInvalidArgumentException {
+        try {
+            for (Long instrumentId : instrumentIds) flashSaleStock.awaitOpen(instrumentId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppObjectInvalidArgumentException("Instrument", "The flash sale of an ordered instrument is ending, try again");
+        }
+    }
+
+    private void activate(Long instrumentId) {
+        int stock = instrumentRepository.findStockById(instrumentId).orElse(0);
+        flashSaleStock.activate(instrumentId, stock + inventoryService.pendingChange(instrumentId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void afterRollback(Runnable action) {
+        afterCompletion(committed -> {
+            if (!committed) action.run();
+        });
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+}
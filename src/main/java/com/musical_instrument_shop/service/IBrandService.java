@@ -1,8 +1,12 @@
 package com.musical_instrument_shop.service;
 
+import com.musical_instrument_shop.core.cache.ResourceVersion;
 import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.BrandInsertDTO;
 import com.musical_instrument_shop.dto.BrandReadOnlyDTO;
 import com.musical_instrument_shop.dto.BrandUpdateDTO;
@@ -11,7 +15,11 @@ import org.springframework.data.domain.Pageable;
 public interface IBrandService {
     BrandReadOnlyDTO saveBrand(BrandInsertDTO dto) throws AppObjectAlreadyExists;
     BrandReadOnlyDTO getOneBrand(Long id) throws AppObjectNotFoundException;
+    ResourceVersion getBrandVersion(Long id) throws AppObjectNotFoundException;
+    ResourceVersion getBrandsVersion();
     Paginated<BrandReadOnlyDTO> getPaginatedBrands(Pageable pageable);
+    SlicedPaginated<BrandReadOnlyDTO> getSlicedBrands(Pageable pageable);
+    KeysetPaginated<BrandReadOnlyDTO> getBrandsAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException;
     BrandReadOnlyDTO updateBrand(BrandUpdateDTO dto) throws AppObjectNotFoundException, AppObjectAlreadyExists;
     void deleteBrand(Long id) throws AppObjectNotFoundException;
 }
\ No newline at end of file
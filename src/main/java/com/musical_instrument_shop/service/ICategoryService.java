@@ -1,8 +1,12 @@
 package com.musical_instrument_shop.service;
 
+import com.musical_instrument_shop.core.cache.ResourceVersion;
 import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.CategoryInsertDTO;
 import com.musical_instrument_shop.dto.CategoryReadOnlyDTO;
 import com.musical_instrument_shop.dto.CategoryUpdateDTO;
@@ -11,7 +15,11 @@ import org.springframework.data.domain.Pageable;
 public interface ICategoryService {
     CategoryReadOnlyDTO saveCategory(CategoryInsertDTO dto) throws AppObjectAlreadyExists;
     CategoryReadOnlyDTO getOneCategory(Long id) throws AppObjectNotFoundException;
+    ResourceVersion getCategoryVersion(Long id) throws AppObjectNotFoundException;
+    ResourceVersion getCategoriesVersion();
     Paginated<CategoryReadOnlyDTO> getPaginatedCategories(Pageable pageable);
+    SlicedPaginated<CategoryReadOnlyDTO> getSlicedCategories(Pageable pageable);
+    KeysetPaginated<CategoryReadOnlyDTO> getCategoriesAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException;
     CategoryReadOnlyDTO updateCategory(CategoryUpdateDTO dto) throws AppObjectNotFoundException, AppObjectAlreadyExists;
     void deleteCategory(Long id) throws AppObjectNotFoundException;
 }
\ No newline at end of file
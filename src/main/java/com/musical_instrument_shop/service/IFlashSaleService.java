@@ -0,0 +1,18 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.dto.OrderItemInsertDTO;
+
+import java.util.Map;
+import java.util.Set;
+
+public interface IFlashSaleService {
+    void startFlashSale(Long instrumentId) throws AppObjectNotFoundException;
+    void endFlashSale(Long instrumentId) throws AppObjectNotFoundException, AppServerException;
+    void rejectSoldOut(Set<OrderItemInsertDTO> items) throws AppObjectInvalidArgumentException;
+    Map<Long, Integer> reserve(Set<OrderItemInsertDTO> items) throws AppObjectInvalidArgumentException;
+    void absorb(Map<Long, Integer> units);
+    void release(Map<Long, Integer> units);
+}
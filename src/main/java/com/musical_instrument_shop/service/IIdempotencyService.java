@@ -0,0 +1,15 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.idempotency.IdempotencyClaim;
+import com.musical_instrument_shop.dto.OrderInsertDTO;
+import com.musical_instrument_shop.dto.OrderReadOnlyDTO;
+
+public interface IIdempotencyService {
+    IdempotencyClaim claim(String key, OrderInsertDTO dto) throws AppObjectInvalidArgumentException, AppObjectAlreadyExists;
+    void complete(IdempotencyClaim claim, OrderReadOnlyDTO response) throws AppServerException;
+    void release(IdempotencyClaim claim);
+    void purgeExpired();
+}
@@ -1,20 +1,38 @@
 package com.musical_instrument_shop.service;
 
+import com.musical_instrument_shop.core.cache.ResourceVersion;
 import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
+import com.musical_instrument_shop.core.filters.FacetedPaginated;
+import com.musical_instrument_shop.core.filters.InstrumentFilters;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
 import com.musical_instrument_shop.dto.InstrumentInsertDTO;
 import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
 import com.musical_instrument_shop.dto.InstrumentUpdateDTO;
+import com.musical_instrument_shop.dto.SuggestionDTO;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface IInstrumentService {
     InstrumentReadOnlyDTO saveInstrument(InstrumentInsertDTO dto) throws AppObjectInvalidArgumentException;
     InstrumentReadOnlyDTO getOneInstrument(Long id) throws AppObjectNotFoundException;
+    ResourceVersion getInstrumentVersion(Long id) throws AppObjectNotFoundException;
+    ResourceVersion getInstrumentsVersion();
     Paginated<InstrumentReadOnlyDTO> getPaginatedInstruments(Pageable pageable);
+    SlicedPaginated<InstrumentReadOnlyDTO> getSlicedInstruments(Pageable pageable);
+    KeysetPaginated<InstrumentReadOnlyDTO> getInstrumentsAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException;
     Paginated<InstrumentReadOnlyDTO> searchByName(String name, Pageable pageable);
+    SlicedPaginated<InstrumentReadOnlyDTO> searchByNameSliced(String name, Pageable pageable);
+    Paginated<InstrumentReadOnlyDTO> fuzzySearch(String query, Pageable pageable);
+    FacetedPaginated<InstrumentReadOnlyDTO> filterInstruments(InstrumentFilters filters) throws AppObjectInvalidArgumentException;
+    List<SuggestionDTO> suggest(String prefix, int limit);
     Paginated<InstrumentReadOnlyDTO> getInstrumentsByCategory(Long categoryId, Pageable pageable) throws AppObjectInvalidArgumentException;
+    SlicedPaginated<InstrumentReadOnlyDTO> getSlicedInstrumentsByCategory(Long categoryId, Pageable pageable) throws AppObjectInvalidArgumentException;
     Paginated<InstrumentReadOnlyDTO> getInstrumentsByBrand(Long brandId, Pageable pageable) throws AppObjectInvalidArgumentException;
+    SlicedPaginated<InstrumentReadOnlyDTO> getSlicedInstrumentsByBrand(Long brandId, Pageable pageable) throws AppObjectInvalidArgumentException;
     InstrumentReadOnlyDTO updateInstrument(InstrumentUpdateDTO dto) throws AppObjectNotFoundException, AppObjectInvalidArgumentException;
     void deleteInstrument(Long id) throws AppObjectNotFoundException;
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
+import com.musical_instrument_shop.dto.InventoryMovementReadOnlyDTO;
+import com.musical_instrument_shop.dto.StockAvailabilityDTO;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Map;
+
+public interface IInventoryService {
+    void recordInitialStock(Long instrumentId, int stock);
+    void recordOrderReservation(Long orderId, Map<Long, Integer> units, boolean applied);
+    void recordOrderCancellation(Long orderId, Map<Long, Integer> units);
+    void adjustStock(Long instrumentId, int targetStock) throws AppObjectNotFoundException;
+    long pendingChange(Long instrumentId);
+    StockAvailabilityDTO getAvailability(Long instrumentId) throws AppObjectNotFoundException;
+    SlicedPaginated<InventoryMovementReadOnlyDTO> getMovements(Long instrumentId, Pageable pageable) throws AppObjectNotFoundException;
+    void foldMovements() throws AppServerException;
+    void foldInstrument(Long instrumentId) throws AppServerException;
+}
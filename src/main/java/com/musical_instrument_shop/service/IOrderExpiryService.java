@@ -0,0 +1,5 @@
+package com.musical_instrument_shop.service;
+
+public interface IOrderExpiryService {
+    void expireStaleOrders();
+}
@@ -2,17 +2,34 @@ package com.musical_instrument_shop.service;
 
 import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
+import com.musical_instrument_shop.core.idempotency.IdempotencyClaim;
 import com.musical_instrument_shop.dto.OrderInsertDTO;
 import com.musical_instrument_shop.dto.OrderReadOnlyDTO;
+import com.musical_instrument_shop.dto.OrderStatusTransitionDTO;
+import com.musical_instrument_shop.dto.OrderSummaryDTO;
+import com.musical_instrument_shop.dto.OrderTransitionResultDTO;
 import com.musical_instrument_shop.dto.OrderUpdateDTO;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface IOrderService {
     OrderReadOnlyDTO saveOrder(OrderInsertDTO dto) throws AppObjectInvalidArgumentException, AppObjectNotFoundException;
+    OrderReadOnlyDTO saveOrder(OrderInsertDTO dto, IdempotencyClaim claim) throws AppObjectInvalidArgumentException, AppObjectNotFoundException, AppServerException;
     OrderReadOnlyDTO getOneOrder(Long id) throws AppObjectNotFoundException;
     Paginated<OrderReadOnlyDTO> getPaginatedOrders(Pageable pageable);
+    SlicedPaginated<OrderReadOnlyDTO> getSlicedOrders(Pageable pageable);
+    KeysetPaginated<OrderReadOnlyDTO> getOrdersAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException;
     Paginated<OrderReadOnlyDTO> getOrdersByUser(Long userId, Pageable pageable) throws AppObjectNotFoundException;
-    OrderReadOnlyDTO updateOrder(OrderUpdateDTO dto) throws AppObjectNotFoundException;
+    SlicedPaginated<OrderReadOnlyDTO> getSlicedOrdersByUser(Long userId, Pageable pageable) throws AppObjectNotFoundException;
+    KeysetPaginated<OrderSummaryDTO> getOrderHistory(Long userId, String after, int pageSize) throws AppObjectNotFoundException, AppObjectInvalidArgumentException;
+    OrderReadOnlyDTO updateOrder(OrderUpdateDTO dto) throws AppObjectNotFoundException, AppObjectInvalidArgumentException;
+    List<OrderTransitionResultDTO> transitionOrders(OrderStatusTransitionDTO dto);
+    List<OrderReadOnlyDTO> claimOrders(String worker, int count);
+    OrderReadOnlyDTO confirmOrder(Long id, String worker) throws AppObjectNotFoundException, AppObjectInvalidArgumentException;
     void deleteOrder(Long id) throws AppObjectNotFoundException;
 }
\ No newline at end of file
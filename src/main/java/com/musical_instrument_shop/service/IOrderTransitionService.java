@@ -0,0 +1,12 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.dto.OrderTransitionResultDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface IOrderTransitionService {
+    List<OrderTransitionResultDTO> transition(List<Long> orderIds, OrderStatus status);
+    int expire(List<Long> orderIds, LocalDateTime cutoff);
+}
@@ -0,0 +1,156 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.IdempotencyStatus;
+import com.musical_instrument_shop.core.exceptions.AppObjectAlreadyExists;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.idempotency.IdempotencyClaim;
+import com.musical_instrument_shop.dto.OrderInsertDTO;
+import com.musical_instrument_shop.dto.OrderReadOnlyDTO;
+import com.musical_instrument_shop.model.IdempotencyKey;
+import com.musical_instrument_shop.repository.IdempotencyKeyRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Idempotency keys for order placement, stored per user. The first request with a key commits an IN_PROGRESS claim
+ * before its order transaction starts and completes it with the serialized response inside that transaction, so the
+ * order and the stored response commit together. Duplicates replay the response; duplicates that arrive while the
+ * first request is still running poll the claim until it completes. A claim left behind by a crashed request expires
+ * after app.idempotency.in-progress-seconds, a completed key after app.idempotency.ttl-seconds.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyService implements IIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long MAX_POLL_MILLIS = 200;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final JsonMapper jsonMapper;
+
+    @Value("${app.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${app.idempotency.in-progress-seconds:30}")
+    private long inProgressSeconds;
+
+    @Value("${app.idempotency.wait-ms:10000}")
+    private long waitMillis;
+
+    /**
+     * Claims the key for this order, or returns the response of the request that already completed it.
+     * Must run outside a transaction: the claim has to be committed for concurrent duplicates to see it.
+     */
+    public IdempotencyClaim claim(String key, OrderInsertDTO dto) throws AppObjectInvalidArgumentException, AppObjectAlreadyExists {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new AppObjectInvalidArgumentException("IdempotencyKey", "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String requestHash = requestHash(dto);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        long pause = 10;
+        while (true) {
+            Optional<IdempotencyKey> existing = idempotencyKeyRepository.findByUserIdAndKey(dto.userId(), key);
+            if (existing.isEmpty()) {
+                try {
+                    IdempotencyKey claimed = idempotencyKeyRepository.saveAndFlush(newClaim(dto.userId(), key, requestHash));
+                    return IdempotencyClaim.claimed(claimed.getId());
+                } catch (DataIntegrityViolationException e) {
+                    if (System.nanoTime() > deadline) throw e;
+                    continue; // A concurrent duplicate claimed it first
+                }
+            }
+
+            IdempotencyKey stored = existing.get();
+            if (stored.getExpiresAt().isBefore(LocalDateTime.now())) {
+                idempotencyKeyRepository.delete(stored);
+                continue;
+            }
+            if (!stored.getRequestHash().equals(requestHash)) {
+                throw new AppObjectInvalidArgumentException("IdempotencyKey", "Idempotency-Key " + key + " was already used for a different order");
+            }
+            if (stored.getStatus() == IdempotencyStatus.COMPLETED) {
+                log.info("Order request with idempotency key for user={} replayed", dto.userId());
+                return IdempotencyClaim.replayed(jsonMapper.readValue(stored.getResponseJson(), OrderReadOnlyDTO.class));
+            }
+
+            if (System.nanoTime() > deadline) {
+                throw new AppObjectAlreadyExists("IdempotencyKey", "A request with Idempotency-Key " + key + " is still in progress");
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AppObjectAlreadyExists("IdempotencyKey", "A request with Idempotency-Key " + key + " is still in progress");
+            }
+            pause = Math.min(pause * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Stores the response for replay. Joins the order transaction, so it is rolled back together with the order.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void complete(IdempotencyClaim claim, OrderReadOnlyDTO response) throws AppServerException {
+        LocalDateTime now = LocalDateTime.now();
+        if (idempotencyKeyRepository.complete(claim.id(), response.id(), jsonMapper.writeValueAsString(response),
+                now.plusSeconds(ttlSeconds), now) == 0) {
+            throw new AppServerException("IdempotencyKey", "Idempotency key claim expired before the order was saved");
+        }
+    }
+
+    /**
+     * Frees the key after the order failed, so the client can retry it.
+     */
+    public void release(IdempotencyClaim claim) {
+        idempotencyKeyRepository.deleteById(claim.id());
+    }
+
+    @Scheduled(initialDelayString = "${app.idempotency.purge-ms:3600000}", fixedDelayString = "${app.idempotency.purge-ms:3600000}")
+    @Transactional(rollbackOn = Exception.class)
+    public void purgeExpired() {
+        int purged = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) log.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    private IdempotencyKey newClaim(Long userId, String key, String requestHash) {
+        IdempotencyKey claim = new IdempotencyKey();
+        claim.setUserId(userId);
+        claim.setKey(key);
+        claim.setRequestHash(requestHash);
+        claim.setStatus(IdempotencyStatus.IN_PROGRESS);
+        claim.setExpiresAt(LocalDateTime.now().plusSeconds(inProgressSeconds));
+        return claim;
+    }
+
+    // Items sorted by instrument id, so the same cart hashes the same whatever order the JSON listed it in
+    private static String requestHash(OrderInsertDTO dto) {
+        String canonical = dto.userId() + "|" + dto.items().stream()
+                .map(item -> item.instrumentId() + ":" + item.quantity())
+                .sorted()
+                .collect(Collectors.joining(","));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,14 +1,30 @@
 package com.musical_instrument_shop.service;
 
+import com.musical_instrument_shop.core.cache.CatalogSnapshot;
+import com.musical_instrument_shop.core.cache.CatalogVersion;
+import com.musical_instrument_shop.core.cache.InstrumentCache;
+import com.musical_instrument_shop.core.cache.ResourceVersion;
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
 import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
+import com.musical_instrument_shop.core.filters.KeysetPager;
+import com.musical_instrument_shop.core.filters.FacetedPaginated;
+import com.musical_instrument_shop.core.filters.InstrumentFilters;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
+import com.musical_instrument_shop.core.search.FacetedHits;
+import com.musical_instrument_shop.core.search.InstrumentFacetIndex;
+import com.musical_instrument_shop.core.search.InstrumentSearchIndex;
+import com.musical_instrument_shop.core.search.SearchHits;
+import com.musical_instrument_shop.core.search.SuggestionIndex;
+import com.musical_instrument_shop.dto.BrandReadOnlyDTO;
+import com.musical_instrument_shop.dto.CategoryReadOnlyDTO;
 import com.musical_instrument_shop.dto.InstrumentInsertDTO;
 import com.musical_instrument_shop.dto.InstrumentReadOnlyDTO;
 import com.musical_instrument_shop.dto.InstrumentUpdateDTO;
+import com.musical_instrument_shop.dto.SuggestionDTO;
 import com.musical_instrument_shop.mapper.Mapper;
-import com.musical_instrument_shop.model.Brand;
-import com.musical_instrument_shop.model.Category;
 import com.musical_instrument_shop.model.Instrument;
 import com.musical_instrument_shop.repository.BrandRepository;
 import com.musical_instrument_shop.repository.CategoryRepository;
@@ -16,69 +32,202 @@ import com.musical_instrument_shop.repository.InstrumentRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class InstrumentService implements IInstrumentService{
 
+    // Columns usable as sort column in cursor mode, all backed by an index (or the primary key)
+    private static final KeysetPager<Instrument> INSTRUMENT_KEYSET = new KeysetPager<>(Instrument::getId)
+            .column("name", value -> value, Instrument::getName)
+            .column("price", BigDecimal::new, Instrument::getPrice);
+
+    // Sort columns of the faceted listing, both held in memory by the facet index
+    private static final List<String> FILTER_SORT_COLUMNS = List.of("id", "price");
+
+    // Sort value of the search endpoint that asks for BM25 ranking instead of a column order
+    public static final String RELEVANCE = "relevance";
+
     private final InstrumentRepository instrumentRepository;
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
     private final Mapper mapper;
+    private final InstrumentSearchIndex searchIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final InstrumentFacetIndex facetIndex;
+    private final InstrumentCache instrumentCache;
+    private final CatalogSnapshot catalogSnapshot;
+    private final CatalogVersion catalogVersion;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(rollbackOn = Exception.class)
     public InstrumentReadOnlyDTO saveInstrument(InstrumentInsertDTO dto) throws AppObjectInvalidArgumentException {
-        Category category = categoryRepository.findById(dto.categoryId())
+        CategoryReadOnlyDTO category = catalogSnapshot.category(dto.categoryId())
                 .orElseThrow(() -> new AppObjectInvalidArgumentException("Category", "Category with id " + dto.categoryId() + " not found"));
 
-        Brand brand = brandRepository.findById(dto.brandId())
+        BrandReadOnlyDTO brand = catalogSnapshot.brand(dto.brandId())
                 .orElseThrow(() -> new AppObjectInvalidArgumentException("Brand", "Brand with id " + dto.brandId() + " not found"));
 
-        Instrument instrument = mapper.mapToInstrumentEntity(dto, category, brand);
+        // References only carry the foreign keys, existence was checked against the snapshot
+        Instrument instrument = mapper.mapToInstrumentEntity(dto,
+                categoryRepository.getReferenceById(category.id()), brandRepository.getReferenceById(brand.id()));
         Instrument savedInstrument = instrumentRepository.save(instrument);
+        inventoryService.recordInitialStock(savedInstrument.getId(), savedInstrument.getStock());
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(CatalogChangedEvent.Target.INSTRUMENT, savedInstrument.getId()));
         log.info("Instrument with name={} saved.", dto.name());
-        return mapper.mapToInstrumentReadOnlyDTO(savedInstrument);
+        return mapper.mapToInstrumentReadOnlyDTO(savedInstrument, category, brand);
     }
 
     public InstrumentReadOnlyDTO getOneInstrument(Long id) throws AppObjectNotFoundException {
-        return instrumentRepository.findById(id)
-                .map(mapper::mapToInstrumentReadOnlyDTO)
+        return instrumentCache.get(id)
+                .orElseThrow(() -> new AppObjectNotFoundException("Instrument", "Instrument with id " + id + " not found"));
+    }
+
+    /**
+     * Validators of GET /api/instruments/{id} without loading the instrument. The response embeds
+     * brand and category names, so their latest change is part of the ETag and Last-Modified.
+     */
+    public ResourceVersion getInstrumentVersion(Long id) throws AppObjectNotFoundException {
+        Instant updatedAt = instrumentCache.updatedAt(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Instrument", "Instrument with id " + id + " not found"));
+        Instant catalogChangedAt = catalogSnapshot.lastModified();
+        return new ResourceVersion("instrument-" + id + "-" + updatedAt.toEpochMilli() + "-" + catalogChangedAt.toEpochMilli(),
+                updatedAt.isAfter(catalogChangedAt) ? updatedAt : catalogChangedAt);
+    }
+
+    public ResourceVersion getInstrumentsVersion() {
+        return catalogVersion.instrumentListing();
     }
 
     public Paginated<InstrumentReadOnlyDTO> getPaginatedInstruments(Pageable pageable) {
-        var paginatedInstruments = instrumentRepository.findAll(pageable);
+        var paginatedInstruments = instrumentRepository.findAllReadOnly(pageable);
         log.debug("Paginated instruments returned successfully");
-        return Paginated.fromPage(paginatedInstruments.map(mapper::mapToInstrumentReadOnlyDTO));
+        return Paginated.fromPage(paginatedInstruments);
+    }
+
+    public SlicedPaginated<InstrumentReadOnlyDTO> getSlicedInstruments(Pageable pageable) {
+        var slicedInstruments = instrumentRepository.sliceAllReadOnly(pageable);
+        log.debug("Sliced instruments returned successfully");
+        return SlicedPaginated.fromSlice(slicedInstruments);
+    }
+
+    public KeysetPaginated<InstrumentReadOnlyDTO> getInstrumentsAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException {
+        var instruments = instrumentRepository.findBy(INSTRUMENT_KEYSET.seek(after, pageable), query -> query
+                .sortBy(INSTRUMENT_KEYSET.sort(pageable))
+                .limit(INSTRUMENT_KEYSET.limit(pageable))
+                .project("category", "brand") // Fetch both relations in the same statement
+                .all());
+        log.debug("Keyset page of instruments returned successfully");
+        return INSTRUMENT_KEYSET.page(instruments, pageable, mapper::mapToInstrumentReadOnlyDTO);
     }
 
     public Paginated<InstrumentReadOnlyDTO> searchByName(String name, Pageable pageable) {
-        var searchResults = instrumentRepository.findByNameContainingIgnoreCase(name, pageable);
+        if (isRankedSearch(pageable)) {
+            SearchHits hits = searchIndex.search(name, pageable.getOffset(), pageable.getPageSize());
+            log.debug("Instruments ranked by relevance for query={}", name);
+            return Paginated.fromPage(new PageImpl<>(loadInOrder(hits.ids()), pageable, hits.total()));
+        }
+
+        var searchResults = instrumentRepository.searchReadOnlyByName(name, databaseSort(pageable));
         log.debug("Instruments filtered by name={}", name);
-        return Paginated.fromPage(searchResults.map(mapper::mapToInstrumentReadOnlyDTO));
+        return Paginated.fromPage(searchResults);
+    }
+
+    public SlicedPaginated<InstrumentReadOnlyDTO> searchByNameSliced(String name, Pageable pageable) {
+        if (isRankedSearch(pageable)) {
+            SearchHits hits = searchIndex.search(name, pageable.getOffset(), pageable.getPageSize());
+            log.debug("Sliced instruments ranked by relevance for query={}", name);
+            boolean hasNext = pageable.getOffset() + pageable.getPageSize() < hits.total();
+            return SlicedPaginated.fromSlice(new SliceImpl<>(loadInOrder(hits.ids()), pageable, hasNext));
+        }
+
+        var searchResults = instrumentRepository.sliceReadOnlyByName(name, databaseSort(pageable));
+        log.debug("Sliced instruments filtered by name={}", name);
+        return SlicedPaginated.fromSlice(searchResults);
+    }
+
+    public Paginated<InstrumentReadOnlyDTO> fuzzySearch(String query, Pageable pageable) {
+        if (!searchIndex.isReady()) {
+            return searchByName(query, databaseSort(pageable)); // No typo tolerance until the index is loaded
+        }
+
+        SearchHits hits = searchIndex.fuzzySearch(query, pageable.getOffset(), pageable.getPageSize());
+        log.debug("Instruments fuzzy matched for query={}", query);
+        return Paginated.fromPage(new PageImpl<>(loadInOrder(hits.ids()), pageable, hits.total()));
+    }
+
+    public FacetedPaginated<InstrumentReadOnlyDTO> filterInstruments(InstrumentFilters filters) throws AppObjectInvalidArgumentException {
+        if (!FILTER_SORT_COLUMNS.contains(filters.getSortBy())) {
+            throw new AppObjectInvalidArgumentException("Sort", "Filtered instruments can only be sorted by " + FILTER_SORT_COLUMNS);
+        }
+
+        Pageable pageable = filters.getPageable();
+        FacetedHits hits = facetIndex.filter(filters, pageable.getOffset(), pageable.getPageSize());
+        log.debug("Instruments filtered by categories={} brands={} price={}-{} inStock={}", filters.getCategoryIds(),
+                filters.getBrandIds(), filters.getMinPrice(), filters.getMaxPrice(), filters.getInStock());
+        return FacetedPaginated.fromPage(new PageImpl<>(loadInOrder(hits.ids()), pageable, hits.total()),
+                hits.brands(), hits.categories(), hits.priceRanges());
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit);
     }
 
     public Paginated<InstrumentReadOnlyDTO> getInstrumentsByCategory(Long categoryId, Pageable pageable) throws AppObjectInvalidArgumentException {
-        if (!categoryRepository.existsById(categoryId)) {
+        if (!catalogSnapshot.categoryExists(categoryId)) {
             throw new AppObjectInvalidArgumentException("Category", "Category with id " + categoryId + " not found");
         }
 
-        var instrumentsByCategory = instrumentRepository.findByCategory_Id(categoryId, pageable);
+        var instrumentsByCategory = instrumentRepository.findReadOnlyByCategoryId(categoryId, pageable);
         log.debug("Instruments filtered by category={}", categoryId);
-        return Paginated.fromPage(instrumentsByCategory.map(mapper::mapToInstrumentReadOnlyDTO));
+        return Paginated.fromPage(instrumentsByCategory);
+    }
+
+    public SlicedPaginated<InstrumentReadOnlyDTO> getSlicedInstrumentsByCategory(Long categoryId, Pageable pageable) throws AppObjectInvalidArgumentException {
+        if (!catalogSnapshot.categoryExists(categoryId)) {
+            throw new AppObjectInvalidArgumentException("Category", "Category with id " + categoryId + " not found");
+        }
+
+        var instrumentsByCategory = instrumentRepository.sliceReadOnlyByCategoryId(categoryId, pageable);
+        log.debug("Sliced instruments filtered by category={}", categoryId);
+        return SlicedPaginated.fromSlice(instrumentsByCategory);
     }
 
     public Paginated<InstrumentReadOnlyDTO> getInstrumentsByBrand(Long brandId, Pageable pageable) throws AppObjectInvalidArgumentException {
-        if (!brandRepository.existsById(brandId)) {
+        if (!catalogSnapshot.brandExists(brandId)) {
             throw new AppObjectInvalidArgumentException("Brand", "Brand with id " + brandId + " not found");
         }
 
-        var instrumentsByBrand = instrumentRepository.findByBrand_Id(brandId, pageable);
+        var instrumentsByBrand = instrumentRepository.findReadOnlyByBrandId(brandId, pageable);
         log.debug("Instruments filtered by brand={}", brandId);
-        return Paginated.fromPage(instrumentsByBrand.map(mapper::mapToInstrumentReadOnlyDTO));
+        return Paginated.fromPage(instrumentsByBrand);
+    }
+
+    public SlicedPaginated<InstrumentReadOnlyDTO> getSlicedInstrumentsByBrand(Long brandId, Pageable pageable) throws AppObjectInvalidArgumentException {
+        if (!catalogSnapshot.brandExists(brandId)) {
+            throw new AppObjectInvalidArgumentException("Brand", "Brand with id " + brandId + " not found");
+        }
+
+        var instrumentsByBrand = instrumentRepository.sliceReadOnlyByBrandId(brandId, pageable);
+        log.debug("Sliced instruments filtered by brand={}", brandId);
+        return SlicedPaginated.fromSlice(instrumentsByBrand);
     }
 
     @Transactional(rollbackOn = Exception.class)
@@ -86,16 +235,32 @@ public class InstrumentService implements IInstrumentService{
         Instrument existingInstrument = instrumentRepository.findById(dto.id())
                 .orElseThrow(() -> new AppObjectNotFoundException("Instrument", "Instrument with id " + dto.id() + " not found"));
 
-        Category category = categoryRepository.findById(dto.categoryId())
+        CategoryReadOnlyDTO category = catalogSnapshot.category(dto.categoryId())
                 .orElseThrow(() -> new AppObjectInvalidArgumentException("Category", "Category with id " + dto.categoryId() + " not found"));
 
-        Brand brand = brandRepository.findById(dto.brandId())
+        BrandReadOnlyDTO brand = catalogSnapshot.brand(dto.brandId())
                 .orElseThrow(() -> new AppObjectInvalidArgumentException("Brand", "Brand with id " + dto.brandId() + " not found"));
 
-        Instrument instrument = mapper.mapToInstrumentEntity(dto, category, brand);
-        Instrument updatedInstrument = instrumentRepository.save(instrument);
+        // Stock is read and written as availability; a value other than the one read is the new availability
+        int available = existingInstrument.getStock() + existingInstrument.getPendingStock();
+        boolean stockChanged = dto.stock() != available;
+
+        // During a flash sale the in-memory counter owns the stock, so it cannot be overwritten here.
+        // Read under the row lock, so a sale cannot start between this check and the adjustment
+        if (stockChanged && instrumentRepository.lockFlashSaleById(dto.id()).orElse(false)) {
+            throw new AppObjectInvalidArgumentException("Instrument", "End the flash sale before changing the stock of instrument with id " + dto.id());
+        }
+
+        // References only carry the foreign keys, existence was checked against the snapshot
+        Instrument instrument = mapper.mapToInstrumentEntity(dto,
+                categoryRepository.getReferenceById(category.id()), brandRepository.getReferenceById(brand.id()));
+        if (stockChanged) inventoryService.adjustStock(dto.id(), dto.stock()); // Recorded in the ledger
+        instrumentRepository.save(instrument);
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(CatalogChangedEvent.Target.INSTRUMENT, instrument.getId()));
         log.info("Instrument with id={} updated.", dto.id());
-        return mapper.mapToInstrumentReadOnlyDTO(updatedInstrument);
+        // The stock column is not updatable, so the detached copy is mapped with the availability it ends up with
+        instrument.setStock(stockChanged ? dto.stock() : available);
+        return mapper.mapToInstrumentReadOnlyDTO(instrument, category, brand);
     }
 
     @Transactional(rollbackOn = Exception.class)
@@ -103,6 +268,30 @@ public class InstrumentService implements IInstrumentService{
         Instrument instrument = instrumentRepository.findById(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Instrument", "Instrument with id " + id + " not found"));
         instrumentRepository.delete(instrument);
+        eventPublisher.publishEvent(CatalogChangedEvent.deleted(CatalogChangedEvent.Target.INSTRUMENT, id));
         log.info("Instrument with id={} deleted.", id);
     }
-}
\ No newline at end of file
+
+    // Relevance ranking comes from the search index; an explicit sort column still goes to the database
+    private boolean isRankedSearch(Pageable pageable) {
+        return pageable.getSort().getOrderFor(RELEVANCE) != null && searchIndex.isReady();
+    }
+
+    // The database has no relevance column, so fall back to id order while the index is still loading
+    private static Pageable databaseSort(Pageable pageable) {
+        if (pageable.getSort().getOrderFor(RELEVANCE) == null) return pageable;
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"));
+    }
+
+    // Loads the rows of an in-memory result by primary key, keeping the order of the ids
+    private List<InstrumentReadOnlyDTO> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, InstrumentReadOnlyDTO> byId = instrumentRepository.findReadOnlyByIdIn(ids).stream()
+                .collect(Collectors.toMap(InstrumentReadOnlyDTO::id, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull) // Deleted after the index was queried
+                .toList();
+    }
+}
@@ -0,0 +1,153 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.MovementType;
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
+import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
+import com.musical_instrument_shop.dto.InventoryMovementReadOnlyDTO;
+import com.musical_instrument_shop.dto.StockAvailabilityDTO;
+import com.musical_instrument_shop.mapper.Mapper;
+import com.musical_instrument_shop.model.InventoryMovement;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import com.musical_instrument_shop.repository.InventoryMovementRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only ledger of every stock change. instruments.stock is a snapshot; current availability is the snapshot
+ * plus the movements not folded into it yet. Decreases that must be checked (checkouts, lowering the stock) update the
+ * snapshot in the same transaction and are recorded as already folded. Increases (restocks, cancellations) and
+ * flash-sale reservations are only inserted, so they never wait on the instrument row; a scheduled job folds them
+ * into the snapshot in batches.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class InventoryService implements IInventoryService {
+
+    private final InventoryMovementRepository movementRepository;
+    private final InstrumentRepository instrumentRepository;
+    private final Mapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.inventory.fold-batch-size:1000}")
+    private int foldBatchSize;
+
+    public void recordInitialStock(Long instrumentId, int stock) {
+        if (stock != 0) movementRepository.save(movement(instrumentId, MovementType.RESTOCK, stock, null, true));
+    }
+
+    /**
+     * Records the units an order took. Applied reservations were already subtracted from the snapshot;
+     * flash-sale reservations were only counted in memory and are subtracted when folded.
+     */
+    public void recordOrderReservation(Long orderId, Map<Long, Integer> units, boolean applied) {
+        movementRepository.saveAll(units.entrySet().stream()
+                .map(reserved -> movement(reserved.getKey(), MovementType.ORDER_RESERVATION, -reserved.getValue(), orderId, applied))
+                .toList());
+    }
+
+    public void recordOrderCancellation(Long orderId, Map<Long, Integer> units) {
+        movementRepository.saveAll(units.entrySet().stream()
+                .map(returned -> movement(returned.getKey(), MovementType.ORDER_CANCELLATION, returned.getValue(), orderId, false))
+                .toList());
+    }
+
+    /**
+     * Records the movement that brings availability (snapshot plus pending movements) to targetStock.
+     * The row is locked first; an increase is a restock folded later, a decrease is applied to the snapshot right away.
+     */
+    public void adjustStock(Long instrumentId, int targetStock) throws AppObjectNotFoundException {
+        int stock = instrumentRepository.lockStockById(instrumentId)
+                .orElseThrow(() -> new AppObjectNotFoundException("Instrument", "Instrument with id " + instrumentId + " not found"));
+        long change = targetStock - (stock + pendingChange(instrumentId));
+        if (change == 0) return;
+
+        if (change > 0) {
+            movementRepository.save(movement(instrumentId, MovementType.RESTOCK, (int) change, null, false));
+            return;
+        }
+        movementRepository.save(movement(instrumentId, MovementType.ADJUSTMENT, (int) change, null, true));
+        instrumentRepository.addToStock(instrumentId, (int) change, LocalDateTime.now());
+    }
+
+    public long pendingChange(Long instrumentId) {
+        Long pending = movementRepository.sumUnfoldedByInstrumentId(instrumentId);
+        return pending != null ? pending : 0L;
+    }
+
+    public StockAvailabilityDTO getAvailability(Long instrumentId) throws AppObjectNotFoundException {
+        int stock = instrumentRepository.findStockById(instrumentId)
+                .orElseThrow(() -> new AppObjectNotFoundException("Instrument", "Instrument with id " + instrumentId + " not found"));
+        long pending = pendingChange(instrumentId);
+        return StockAvailabilityDTO.builder()
+                .instrumentId(instrumentId)
+                .stock(stock)
+                .pendingChange(pending)
+                .available(stock + pending)
+                .build();
+    }
+
+    public SlicedPaginated<InventoryMovementReadOnlyDTO> getMovements(Long instrumentId, Pageable pageable) throws AppObjectNotFoundException {
+        if (!instrumentRepository.existsById(instrumentId)) {
+            throw new AppObjectNotFoundException("Instrument", "Instrument with id " + instrumentId + " not found");
+        }
+
+        var movements = movementRepository.findByInstrumentId(instrumentId, pageable);
+        log.debug("Inventory movements of instrument={} returned successfully", instrumentId);
+        return SlicedPaginated.fromSlice(movements.map(mapper::mapToInventoryMovementReadOnlyDTO));
+    }
+
+    @Scheduled(initialDelayString = "${app.inventory.fold-ms:1000}", fixedDelayString = "${app.inventory.fold-ms:1000}")
+    @Transactional(rollbackOn = Exception.class)
+    public void foldMovements() throws AppServerException {
+        fold(movementRepository.findUnfolded(Limit.of(foldBatchSize)));
+    }
+
+    @Transactional(rollbackOn = Exception.class)
+    public void foldInstrument(Long instrumentId) throws AppServerException {
+        fold(movementRepository.lockUnfoldedByInstrumentId(instrumentId));
+    }
+
+    private void fold(List<InventoryMovementRepository.UnfoldedMovement> movements) throws AppServerException {
+        if (movements.isEmpty()) return;
+
+        List<Long> movementIds = movements.stream().map(InventoryMovementRepository.UnfoldedMovement::getId).toList();
+        if (movementRepository.markFolded(movementIds) != movementIds.size()) {
+            throw new AppServerException("Inventory", "Movements were folded concurrently, retrying on the next run");
+        }
+
+        Map<Long, Integer> changes = new TreeMap<>(); // Ascending id, the same lock order as checkout
+        movements.forEach(movement -> changes.merge(movement.getInstrumentId(), movement.getQuantity(), Integer::sum));
+        LocalDateTime now = LocalDateTime.now();
+        changes.forEach((instrumentId, change) -> {
+            if (change == 0) return;
+            instrumentRepository.addToStock(instrumentId, change, now);
+            eventPublisher.publishEvent(CatalogChangedEvent.stockChanged(instrumentId));
+        });
+        log.debug("Folded {} inventory movements into {} instruments", movementIds.size(), changes.size());
+    }
+
+    private static InventoryMovement movement(Long instrumentId, MovementType type, int quantity, Long orderId, boolean folded) {
+        InventoryMovement movement = new InventoryMovement();
+        movement.setInstrumentId(instrumentId);
+        movement.setType(type);
+        movement.setQuantity(quantity);
+        movement.setOrderId(orderId);
+        movement.setFolded(folded);
+        return movement;
+    }
+}
@@ -0,0 +1,113 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cancels PENDING orders older than app.orders.expiry.ttl-minutes, so the stock they reserved can be sold again.
+ * Stale orders are walked in (order_date, id) order in small chunks. Each chunk is cancelled in its own short
+ * transaction that skips rows locked by checkouts, pickers or bulk changes, and the job pauses between chunks and
+ * stops after max-chunks-per-run, so it never holds locks for long or crowds out checkout traffic.
+ * Progress is published as orders.expiry.* metrics.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderExpiryService implements IOrderExpiryService {
+
+    private final OrderRepository orderRepository;
+    private final OrderTransitionService orderTransitionService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.orders.expiry.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${app.orders.expiry.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.orders.expiry.max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
+    @Value("${app.orders.expiry.pause-ms:100}")
+    private long pauseMillis;
+
+    private Counter expiredOrders;
+    private Counter skippedOrders;
+    private Counter chunks;
+    private Timer runs;
+
+    @PostConstruct
+    void init() {
+        expiredOrders = Counter.builder("orders.expiry.expired")
+                .description("Stale PENDING orders cancelled")
+                .register(meterRegistry);
+        skippedOrders = Counter.builder("orders.expiry.skipped")
+                .description("Stale orders left for a later run: locked, leased or changed since they were read")
+                .register(meterRegistry);
+        chunks = Counter.builder("orders.expiry.chunks")
+                .description("Chunks processed, one transaction each")
+                .register(meterRegistry);
+        runs = Timer.builder("orders.expiry.run")
+                .description("Duration of an expiry run, pauses included")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.orders.expiry.interval-ms:60000}", fixedDelayString = "${app.orders.expiry.interval-ms:60000}")
+    public void expireStaleOrders() {
+        runs.record(this::expireChunks);
+    }
+
+    private void expireChunks() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+        Limit limit = Limit.of(chunkSize);
+        List<OrderRepository.ExpiryCandidate> candidates = orderRepository.findExpiryCandidates(cutoff, limit);
+
+        int processedChunks = 0;
+        int expired = 0;
+        while (!candidates.isEmpty()) {
+            List<Long> orderIds = candidates.stream().map(OrderRepository.ExpiryCandidate::getId).toList();
+            int cancelled;
+            try {
+                cancelled = orderTransitionService.expire(orderIds, cutoff);
+            } catch (RuntimeException e) {
+                log.warn("Expiring orders {}..{} failed, retrying on the next run", orderIds.get(0), orderIds.get(orderIds.size() - 1), e);
+                break;
+            }
+            expired += cancelled;
+            expiredOrders.increment(cancelled);
+            skippedOrders.increment(orderIds.size() - cancelled);
+            chunks.increment();
+            processedChunks++;
+
+            if (candidates.size() < chunkSize || processedChunks >= maxChunksPerRun || !pause()) break;
+            OrderRepository.ExpiryCandidate last = candidates.get(candidates.size() - 1);
+            candidates = orderRepository.findExpiryCandidatesAfter(cutoff, last.getOrderDate(), last.getId(), limit);
+        }
+
+        if (expired > 0) {
+            log.info("Expired {} stale PENDING orders in {} chunks", expired, processedChunks);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Shutting down; the rest is picked up after restart
+            return false;
+        }
+    }
+}
@@ -1,12 +1,24 @@
 package com.musical_instrument_shop.service;
 
 import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.enums.TransitionOutcome;
+import com.musical_instrument_shop.core.events.CatalogChangedEvent;
 import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
 import com.musical_instrument_shop.core.exceptions.AppObjectNotFoundException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.filters.KeysetCursor;
+import com.musical_instrument_shop.core.filters.KeysetPaginated;
+import com.musical_instrument_shop.core.filters.KeysetPager;
 import com.musical_instrument_shop.core.filters.Paginated;
+import com.musical_instrument_shop.core.filters.SlicedPaginated;
+import com.musical_instrument_shop.core.idempotency.IdempotencyClaim;
 import com.musical_instrument_shop.dto.OrderInsertDTO;
 import com.musical_instrument_shop.dto.OrderItemInsertDTO;
+import com.musical_instrument_shop.dto.OrderItemReadOnlyDTO;
 import com.musical_instrument_shop.dto.OrderReadOnlyDTO;
+import com.musical_instrument_shop.dto.OrderStatusTransitionDTO;
+import com.musical_instrument_shop.dto.OrderSummaryDTO;
+import com.musical_instrument_shop.dto.OrderTransitionResultDTO;
 import com.musical_instrument_shop.dto.OrderUpdateDTO;
 import com.musical_instrument_shop.mapper.Mapper;
 import com.musical_instrument_shop.model.Instrument;
@@ -14,31 +26,64 @@ import com.musical_instrument_shop.model.Order;
 import com.musical_instrument_shop.model.OrderItem;
 import com.musical_instrument_shop.model.User;
 import com.musical_instrument_shop.repository.InstrumentRepository;
+import com.musical_instrument_shop.repository.OrderItemRepository;
 import com.musical_instrument_shop.repository.OrderRepository;
 import com.musical_instrument_shop.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class OrderService implements IOrderService{
 
+    private static final KeysetPager<Order> ORDER_KEYSET = new KeysetPager<>(Order::getId)
+            .column("orderDate", LocalDateTime::parse, Order::getOrderDate);
+    private static final String HISTORY_SORT = "orderDate";
+
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
     private final UserRepository userRepository;
     private final InstrumentRepository instrumentRepository;
     private final Mapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FlashSaleService flashSaleService;
+    private final InventoryService inventoryService;
+    private final IdempotencyService idempotencyService;
+    private final OrderTransitionService orderTransitionService;
+
+    @Value("${app.orders.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.orders.max-claim:50}")
+    private int maxClaim;
+
+    @Value("${app.orders.bulk-chunk-size:500}")
+    private int bulkChunkSize;
 
     @Transactional(rollbackOn = Exception.class)
     public OrderReadOnlyDTO saveOrder(OrderInsertDTO dto) throws AppObjectInvalidArgumentException, AppObjectNotFoundException {
+        Map<Long, Integer> flashSaleUnits = flashSaleService.reserve(dto.items()); // In memory, before any row is touched
+
         User user = userRepository.findById(dto.userId())
                 .orElseThrow(() -> new AppObjectInvalidArgumentException("User", "User with id " + dto.userId() + " not found"));
 
@@ -47,16 +92,15 @@ public class OrderService implements IOrderService{
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(OrderStatus.PENDING);
 
+        Map<Long, Instrument> instruments = loadInstruments(dto.items());
+        Map<Long, Integer> reservedUnits = reserveStock(dto.items(), flashSaleUnits.keySet(), instruments);
+        flashSaleService.absorb(reservedUnits); // Sales started while this checkout waited on the row lock
+
         Set<OrderItem> items = new HashSet<>();
         BigDecimal totalAmount = BigDecimal.ZERO;
 
         for (OrderItemInsertDTO itemDTO : dto.items()) {
-            Instrument instrument = instrumentRepository.findById(itemDTO.instrumentId())
-                    .orElseThrow(() -> new AppObjectInvalidArgumentException("Instrument", "Instrument with id " + itemDTO.instrumentId() + " not found"));
-
-            if (instrument.getStock() < itemDTO.quantity()) {
-                throw new AppObjectInvalidArgumentException("Instrument", "Insufficient stock for instrument: " + instrument.getName());
-            }
+            Instrument instrument = instruments.get(itemDTO.instrumentId());
 
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
@@ -66,30 +110,100 @@ public class OrderService implements IOrderService{
 
             items.add(orderItem);
             totalAmount = totalAmount.add(instrument.getPrice().multiply(BigDecimal.valueOf(itemDTO.quantity())));
-
-            // Decrease stock
-            instrument.setStock(instrument.getStock() - itemDTO.quantity());
-            instrumentRepository.save(instrument);
         }
 
         order.setItems(items);
         order.setTotalAmount(totalAmount);
 
         Order savedOrder = orderRepository.save(order);
+        inventoryService.recordOrderReservation(savedOrder.getId(), reservedUnits, true);
+        inventoryService.recordOrderReservation(savedOrder.getId(), flashSaleUnits, false); // Folded later
         log.info("Order for user={} saved.", dto.userId());
         return mapper.mapToOrderReadOnlyDTO(savedOrder);
     }
 
+    /**
+     * Saves the order and stores its response under the idempotency claim in the same transaction:
+     * a retry finds either the stored response or no order at all.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public OrderReadOnlyDTO saveOrder(OrderInsertDTO dto, IdempotencyClaim claim)
+            throws AppObjectInvalidArgumentException, AppObjectNotFoundException, AppServerException {
+        OrderReadOnlyDTO orderReadOnlyDTO = saveOrder(dto);
+        idempotencyService.complete(claim, orderReadOnlyDTO);
+        return orderReadOnlyDTO;
+    }
+
+    /**
+     * Loads every instrument of the order in one select, so the round trips of a checkout do not grow with the cart.
+     */
+    private Map<Long, Instrument> loadInstruments(Set<OrderItemInsertDTO> items) throws AppObjectInvalidArgumentException {
+        Set<Long> instrumentIds = items.stream().map(OrderItemInsertDTO::instrumentId).collect(Collectors.toSet());
+        Map<Long, Instrument> instruments = instrumentRepository.findAllWithCatalogByIdIn(instrumentIds).stream()
+                .collect(Collectors.toMap(Instrument::getId, Function.identity()));
+
+        for (Long instrumentId : instrumentIds) {
+            if (!instruments.containsKey(instrumentId)) {
+                throw new AppObjectInvalidArgumentException("Instrument", "Instrument with id " + instrumentId + " not found");
+            }
+        }
+        return instruments;
+    }
+
+    /**
+     * Decrements stock for the whole order with one conditional update, so concurrent checkouts can neither oversell
+     * nor lose updates. The statement locks the rows in ascending id order, so two orders never wait on each other's
+     * row locks in opposite order. Any shortage throws and the transaction rolls back the rows that were decremented.
+     * Instruments already reserved from flash-sale stock are skipped. Returns the units reserved per instrument id.
+     */
+    private Map<Long, Integer> reserveStock(Set<OrderItemInsertDTO> items, Set<Long> reservedInMemory,
+                                            Map<Long, Instrument> instruments) throws AppObjectInvalidArgumentException {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        items.stream()
+                .filter(item -> !reservedInMemory.contains(item.instrumentId()))
+                .forEach(item -> quantities.merge(item.instrumentId(), item.quantity(), Integer::sum));
+        if (quantities.isEmpty()) return quantities;
+
+        if (instrumentRepository.reserveStock(quantities, LocalDateTime.now()) != quantities.size()) {
+            // The stock read with the cart names the short instrument, unless another checkout took it since
+            String shortOf = quantities.entrySet().stream()
+                    .filter(reservation -> instruments.get(reservation.getKey()).getStock() < reservation.getValue())
+                    .map(reservation -> instruments.get(reservation.getKey()).getName())
+                    .collect(Collectors.joining(", "));
+            throw new AppObjectInvalidArgumentException("Instrument", shortOf.isEmpty()
+                    ? "Insufficient stock for one of the ordered instruments"
+                    : "Insufficient stock for instrument: " + shortOf);
+        }
+        quantities.keySet().forEach(instrumentId -> eventPublisher.publishEvent(CatalogChangedEvent.stockChanged(instrumentId)));
+        return quantities;
+    }
+
     public OrderReadOnlyDTO getOneOrder(Long id) throws AppObjectNotFoundException {
-        return orderRepository.findById(id)
-                .map(mapper::mapToOrderReadOnlyDTO)
+        Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Order", "Order with id " + id + " not found"));
+        return withItems(List.of(order)).apply(order);
     }
 
     public Paginated<OrderReadOnlyDTO> getPaginatedOrders(Pageable pageable) {
         var paginatedOrders = orderRepository.findAll(pageable);
         log.debug("Paginated orders returned successfully");
-        return Paginated.fromPage(paginatedOrders.map(mapper::mapToOrderReadOnlyDTO));
+        return Paginated.fromPage(paginatedOrders.map(withItems(paginatedOrders.getContent())));
+    }
+
+    public SlicedPaginated<OrderReadOnlyDTO> getSlicedOrders(Pageable pageable) {
+        var slicedOrders = orderRepository.sliceAll(pageable);
+        log.debug("Sliced orders returned successfully");
+        return SlicedPaginated.fromSlice(slicedOrders.map(withItems(slicedOrders.getContent())));
+    }
+
+    public KeysetPaginated<OrderReadOnlyDTO> getOrdersAfter(String after, Pageable pageable) throws AppObjectInvalidArgumentException {
+        var orders = orderRepository.findBy(ORDER_KEYSET.seek(after, pageable), query -> query
+                .sortBy(ORDER_KEYSET.sort(pageable))
+                .limit(ORDER_KEYSET.limit(pageable))
+                .project("user")
+                .all());
+        log.debug("Keyset page of orders returned successfully");
+        return ORDER_KEYSET.page(orders, pageable, withItems(orders));
     }
 
     public Paginated<OrderReadOnlyDTO> getOrdersByUser(Long userId, Pageable pageable) throws AppObjectNotFoundException {
@@ -99,20 +213,147 @@ public class OrderService implements IOrderService{
 
         var ordersByUser = orderRepository.findByUser_Id(userId, pageable);
         log.debug("Orders filtered by user={}", userId);
-        return Paginated.fromPage(ordersByUser.map(mapper::mapToOrderReadOnlyDTO));
+        return Paginated.fromPage(ordersByUser.map(withItems(ordersByUser.getContent())));
+    }
+
+    public SlicedPaginated<OrderReadOnlyDTO> getSlicedOrdersByUser(Long userId, Pageable pageable) throws AppObjectNotFoundException {
+        if (!userRepository.existsById(userId)) {
+            throw new AppObjectNotFoundException("User", "User with id " + userId + " not found");
+        }
+
+        var ordersByUser = orderRepository.sliceByUserId(userId, pageable);
+        log.debug("Sliced orders filtered by user={}", userId);
+        return SlicedPaginated.fromSlice(ordersByUser.map(withItems(ordersByUser.getContent())));
+    }
+
+    /**
+     * Order history of a user, newest first, as summary rows. Pages are requested with the nextCursor of the
+     * previous page and seek on (user_id, order_date, id), so deep pages cost the same as the first one.
+     */
+    public KeysetPaginated<OrderSummaryDTO> getOrderHistory(Long userId, String after, int pageSize)
+            throws AppObjectNotFoundException, AppObjectInvalidArgumentException {
+        if (!userRepository.existsById(userId)) {
+            throw new AppObjectNotFoundException("User", "User with id " + userId + " not found");
+        }
+
+        Limit limit = Limit.of(pageSize + 1); // One extra row tells whether there is a next page
+        List<OrderSummaryDTO> rows;
+        if (after == null || after.isBlank()) {
+            rows = orderRepository.findHistory(userId, limit);
+        } else {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            if (!HISTORY_SORT.equals(cursor.sortBy()) || cursor.direction() != Sort.Direction.DESC) {
+                throw new AppObjectInvalidArgumentException("Cursor", "Cursor was issued for a different sort order");
+            }
+            LocalDateTime orderDate;
+            try {
+                orderDate = LocalDateTime.parse(cursor.value());
+            } catch (DateTimeParseException e) {
+                throw new AppObjectInvalidArgumentException("Cursor", "Invalid pagination cursor");
+            }
+            rows = orderRepository.findHistoryBefore(userId, orderDate, cursor.id(), limit);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<OrderSummaryDTO> pageRows = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            OrderSummaryDTO last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new KeysetCursor(HISTORY_SORT, Sort.Direction.DESC, last.id(), last.orderDate().toString()).encode();
+        }
+        log.debug("Order history page of user={} returned successfully", userId);
+        return KeysetPaginated.<OrderSummaryDTO>builder()
+                .data(pageRows)
+                .pageSize(pageSize)
+                .numberOfElements(pageRows.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Transactional(rollbackOn = Exception.class)
-    public OrderReadOnlyDTO updateOrder(OrderUpdateDTO dto) throws AppObjectNotFoundException {
-        Order order = orderRepository.findById(dto.id())
+    public OrderReadOnlyDTO updateOrder(OrderUpdateDTO dto) throws AppObjectNotFoundException, AppObjectInvalidArgumentException {
+        // Locked, so a concurrent cancellation waits and then sees CANCELLED instead of returning the units twice
+        Order order = orderRepository.findForUpdateById(dto.id())
                 .orElseThrow(() -> new AppObjectNotFoundException("Order", "Order with id " + dto.id() + " not found"));
 
+        if (dto.status() != order.getStatus() && !order.getStatus().canTransitionTo(dto.status())) {
+            throw new AppObjectInvalidArgumentException("Order", "Order with id " + dto.id() + " cannot change from "
+                    + order.getStatus() + " to " + dto.status());
+        }
+
+        if (dto.status() == OrderStatus.CANCELLED && order.getStatus() != OrderStatus.CANCELLED) {
+            // Returned units are appended to the ledger and reach instruments.stock when folded
+            Map<Long, Integer> returnedUnits = new TreeMap<>();
+            order.getItems().forEach(item -> returnedUnits.merge(item.getInstrument().getId(), item.getQuantity(), Integer::sum));
+            inventoryService.recordOrderCancellation(order.getId(), returnedUnits);
+            flashSaleService.release(returnedUnits);
+        }
+
         order.setStatus(dto.status());
+        if (dto.status() != OrderStatus.PENDING) {
+            // Out of the fulfilment queue
+            order.setClaimedBy(null);
+            order.setLeaseExpiresAt(null);
+        }
         Order updatedOrder = orderRepository.save(order);
         log.info("Order with id={} updated.", dto.id());
         return mapper.mapToOrderReadOnlyDTO(updatedOrder);
     }
 
+    /**
+     * Leases up to count of the oldest PENDING orders to a fulfilment worker for app.orders.lease-seconds.
+     * Concurrent claims skip the rows other claims have locked, so workers never wait on each other and
+     * never receive the same order. Orders whose lease expired are handed out again.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public List<OrderReadOnlyDTO> claimOrders(String worker, int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> orderIds = orderRepository.lockClaimableIds(now, Math.min(Math.max(count, 1), maxClaim));
+        if (orderIds.isEmpty()) return List.of();
+
+        orderRepository.lease(orderIds, worker, now.plusSeconds(leaseSeconds), now);
+        List<Order> orders = orderRepository.findWithUserByIdIn(orderIds);
+        log.info("Leased {} orders to worker={}", orders.size(), worker);
+        return orders.stream().map(withItems(orders)).toList();
+    }
+
+    @Transactional(rollbackOn = Exception.class)
+    public OrderReadOnlyDTO confirmOrder(Long id, String worker) throws AppObjectNotFoundException, AppObjectInvalidArgumentException {
+        if (orderRepository.confirmLeased(id, worker, LocalDateTime.now()) == 0) {
+            if (!orderRepository.existsById(id)) {
+                throw new AppObjectNotFoundException("Order", "Order with id " + id + " not found");
+            }
+            throw new AppObjectInvalidArgumentException("Order", "Order with id " + id + " is not leased to " + worker + " or its lease expired");
+        }
+        log.info("Order with id={} confirmed by worker={}", id, worker);
+        return getOneOrder(id);
+    }
+
+    /**
+     * Moves many orders to one status in chunks of app.orders.bulk-chunk-size, each in its own transaction, so a large
+     * batch neither holds thousands of row locks at once nor is undone by a failure in a later chunk.
+     * Returns one result per order id, in ascending id order.
+     */
+    public List<OrderTransitionResultDTO> transitionOrders(OrderStatusTransitionDTO dto) {
+        List<Long> orderIds = dto.ids().stream().sorted().toList();
+        List<OrderTransitionResultDTO> results = new ArrayList<>(orderIds.size());
+        for (int from = 0; from < orderIds.size(); from += bulkChunkSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + bulkChunkSize, orderIds.size()));
+            try {
+                results.addAll(orderTransitionService.transition(chunk, dto.status()));
+            } catch (RuntimeException e) {
+                log.error("Moving orders {}..{} to {} failed", chunk.get(0), chunk.get(chunk.size() - 1), dto.status(), e);
+                chunk.forEach(orderId -> results.add(OrderTransitionResultDTO.builder()
+                        .id(orderId)
+                        .outcome(TransitionOutcome.FAILED)
+                        .build()));
+            }
+        }
+        log.info("Bulk status change of {} orders to {} finished", orderIds.size(), dto.status());
+        return results;
+    }
+
     @Transactional(rollbackOn = Exception.class)
     public void deleteOrder(Long id) throws AppObjectNotFoundException {
         Order order = orderRepository.findById(id)
@@ -120,4 +361,18 @@ public class OrderService implements IOrderService{
         orderRepository.delete(order);
         log.info("Order with id={} deleted.", id);
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads the items of all the given orders with one projection query and returns a mapper that attaches them.
+     * Together with the user fetched by the order query, a page of orders costs the same number of queries
+     * whatever its size, and nothing is left to load lazily after the session is closed.
+     */
+    private Function<Order, OrderReadOnlyDTO> withItems(List<Order> orders) {
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        Map<Long, Set<OrderItemReadOnlyDTO>> itemsByOrder = orderIds.isEmpty() ? Map.of()
+                : orderItemRepository.findLinesByOrderIdIn(orderIds).stream()
+                        .collect(Collectors.groupingBy(OrderItemRepository.OrderLine::getOrderId,
+                                Collectors.mapping(mapper::mapToOrderItemReadOnlyDTO, Collectors.toSet())));
+        return order -> mapper.mapToOrderReadOnlyDTO(order, itemsByOrder.getOrDefault(order.getId(), Set.of()));
+    }
+}
@@ -0,0 +1,101 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.enums.TransitionOutcome;
+import com.musical_instrument_shop.dto.OrderTransitionResultDTO;
+import com.musical_instrument_shop.repository.OrderItemRepository;
+import com.musical_instrument_shop.repository.OrderRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies one chunk of a bulk status change in its own transaction: lock the chunk's rows, check every order
+ * against the OrderStatus state machine, then move all valid orders with a single UPDATE. Cancellations give
+ * their units back through the inventory ledger in the same transaction; InventoryService folds them into
+ * instruments.stock with one update per instrument, off the checkout path.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderTransitionService implements IOrderTransitionService {
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final InventoryService inventoryService;
+    private final FlashSaleService flashSaleService;
+
+    @Transactional(rollbackOn = Exception.class)
+    public List<OrderTransitionResultDTO> transition(List<Long> orderIds, OrderStatus status) {
+        Map<Long, OrderStatus> currentStatuses = new HashMap<>();
+        orderRepository.lockStatusesByIdIn(orderIds)
+                .forEach(row -> currentStatuses.put(row.getId(), OrderStatus.valueOf(row.getStatus())));
+
+        List<OrderTransitionResultDTO> results = new ArrayList<>(orderIds.size());
+        List<Long> transitioned = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            OrderStatus current = currentStatuses.get(orderId);
+            TransitionOutcome outcome;
+            if (current == null) {
+                outcome = TransitionOutcome.NOT_FOUND;
+            } else if (current == status) {
+                outcome = TransitionOutcome.UNCHANGED;
+            } else if (!current.canTransitionTo(status)) {
+                outcome = TransitionOutcome.INVALID_TRANSITION;
+            } else {
+                outcome = TransitionOutcome.UPDATED;
+                transitioned.add(orderId);
+            }
+            results.add(OrderTransitionResultDTO.builder()
+                    .id(orderId)
+                    .previousStatus(current)
+                    .outcome(outcome)
+                    .build());
+        }
+        if (transitioned.isEmpty()) return results;
+
+        orderRepository.updateStatus(transitioned, status, LocalDateTime.now());
+        if (status == OrderStatus.CANCELLED) {
+            restoreStock(transitioned);
+        }
+        log.debug("Moved {} of {} orders to {}", transitioned.size(), orderIds.size(), status);
+        return results;
+    }
+
+    /**
+     * Cancels the orders of an expiry chunk that are still PENDING, older than cutoff and not leased, and returns
+     * how many were cancelled. Orders locked by other transactions are left for the next run.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public int expire(List<Long> orderIds, LocalDateTime cutoff) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> expired = orderRepository.lockExpirableIds(orderIds, cutoff, now);
+        if (expired.isEmpty()) return 0;
+
+        orderRepository.updateStatus(expired, OrderStatus.CANCELLED, now);
+        restoreStock(expired);
+        return expired.size();
+    }
+
+    private void restoreStock(List<Long> orderIds) {
+        Map<Long, Map<Long, Integer>> returnedUnits = new TreeMap<>();
+        Map<Long, Integer> releasedUnits = new TreeMap<>();
+        for (OrderItemRepository.OrderUnits units : orderItemRepository.sumUnitsByOrderIdIn(orderIds)) {
+            int quantity = units.getUnits().intValue();
+            returnedUnits.computeIfAbsent(units.getOrderId(), orderId -> new TreeMap<>())
+                    .merge(units.getInstrumentId(), quantity, Integer::sum);
+            releasedUnits.merge(units.getInstrumentId(), quantity, Integer::sum);
+        }
+        // Ledger rows of the whole chunk are flushed as batched inserts
+        returnedUnits.forEach(inventoryService::recordOrderCancellation);
+        flashSaleService.release(releasedUnits);
+    }
+}
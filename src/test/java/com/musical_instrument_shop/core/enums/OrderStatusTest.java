@@ -0,0 +1,46 @@
+package com.musical_instrument_shop.core.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The full transition table: every pair not listed as allowed must be rejected, including staying in the same status.
+ */
+class OrderStatusTest {
+
+    private static final Map<OrderStatus, Set<OrderStatus>> ALLOWED = Map.of(
+            OrderStatus.PENDING, EnumSet.of(OrderStatus.CONFIRMED, OrderStatus.CANCELLED),
+            OrderStatus.CONFIRMED, EnumSet.of(OrderStatus.SHIPPED, OrderStatus.CANCELLED),
+            OrderStatus.SHIPPED, EnumSet.of(OrderStatus.DELIVERED),
+            OrderStatus.DELIVERED, EnumSet.noneOf(OrderStatus.class),
+            OrderStatus.CANCELLED, EnumSet.noneOf(OrderStatus.class));
+
+    @Test
+    void onlyListedTransitionsAreAllowed() {
+        for (OrderStatus from : OrderStatus.values()) {
+            for (OrderStatus to : OrderStatus.values()) {
+                assertThat(from.canTransitionTo(to))
+                        .as("%s -> %s", from, to)
+                        .isEqualTo(ALLOWED.get(from).contains(to));
+            }
+        }
+    }
+
+    @Test
+    void shippedOrdersCanNoLongerBeCancelled() {
+        assertThat(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.CANCELLED)).isFalse();
+    }
+
+    @Test
+    void finalStatusesHaveNoWayOut() {
+        for (OrderStatus to : OrderStatus.values()) {
+            assertThat(OrderStatus.DELIVERED.canTransitionTo(to)).isFalse();
+            assertThat(OrderStatus.CANCELLED.canTransitionTo(to)).isFalse();
+        }
+    }
+}
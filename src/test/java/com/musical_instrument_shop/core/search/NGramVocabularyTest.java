@@ -0,0 +1,54 @@
+package com.musical_instrument_shop.core.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NGramVocabularyTest {
+
+    private NGramVocabulary vocabulary;
+
+    @BeforeEach
+    void indexNames() {
+        vocabulary = new NGramVocabulary();
+        vocabulary.put(1L, Set.of("gibson", "les", "paul"));
+        vocabulary.put(2L, Set.of("fender", "stratocaster"));
+        vocabulary.put(3L, Set.of("yamaha", "pacifica"));
+    }
+
+    @Test
+    void correctsMissingLetter() {
+        assertThat(vocabulary.similar("gibsn", 1, 20, 5))
+                .containsExactly(new NGramVocabulary.Match("gibson", 1));
+    }
+
+    @Test
+    void correctsSwappedLettersWithOneEdit() {
+        assertThat(vocabulary.similar("pual", 1, 20, 5))
+                .containsExactly(new NGramVocabulary.Match("paul", 1));
+    }
+
+    @Test
+    void correctsLongWordsWithTwoEdits() {
+        assertThat(vocabulary.similar("startocastr", 2, 20, 5))
+                .containsExactly(new NGramVocabulary.Match("stratocaster", 2));
+    }
+
+    @Test
+    void forgetsRemovedWords() {
+        vocabulary.remove(1L);
+
+        assertThat(vocabulary.similar("pual", 1, 20, 5)).isEmpty();
+        assertThat(vocabulary.similar("gibsn", 1, 20, 5)).isEmpty();
+    }
+
+    @Test
+    void countsAdjacentSwapAsOneEdit() {
+        assertThat(NGramVocabulary.boundedDistance("pual", "paul", 2)).isEqualTo(1);
+        assertThat(NGramVocabulary.boundedDistance("gibsn", "gibson", 2)).isEqualTo(1);
+        assertThat(NGramVocabulary.boundedDistance("fender", "gibson", 2)).isEqualTo(3);
+    }
+}
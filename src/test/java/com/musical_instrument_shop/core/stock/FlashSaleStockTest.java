@@ -0,0 +1,109 @@
+package com.musical_instrument_shop.core.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Ending a sale must not fold the ledger while a checkout that reserved from the counter is still in flight,
+ * or the database path could sell the same units again.
+ */
+class FlashSaleStockTest {
+
+    private static final Long INSTRUMENT = 1L;
+
+    private FlashSaleStock stock;
+
+    @BeforeEach
+    void startSale() {
+        stock = new FlashSaleStock();
+        stock.activate(INSTRUMENT, 10);
+    }
+
+    @Test
+    void closeWaitsForReservationsInFlight() throws Exception {
+        assertThat(stock.reserve(INSTRUMENT, 3)).isEqualTo(FlashSaleStock.Reservation.RESERVED);
+
+        CompletableFuture<Boolean> closed = CompletableFuture.supplyAsync(() -> close(5_000));
+        assertThatThrownBy(() -> closed.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        stock.finished(INSTRUMENT); // The checkout committed
+        assertThat(closed.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void closedCounterRejectsNewReservations() {
+        assertThat(close(0)).isTrue();
+
+        assertThat(stock.reserve(INSTRUMENT, 1)).isEqualTo(FlashSaleStock.Reservation.CLOSING);
+    }
+
+    @Test
+    void checkoutsWaitUntilTheEndedSaleIsDeactivated() throws Exception {
+        assertThat(close(0)).isTrue();
+
+        CompletableFuture<FlashSaleStock.Reservation> checkout = CompletableFuture.supplyAsync(() -> {
+            awaitOpen();
+            return stock.reserve(INSTRUMENT, 1);
+        });
+        assertThatThrownBy(() -> checkout.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        stock.deactivate(INSTRUMENT); // The fold committed; the checkout takes the database path
+        assertThat(checkout.get(5, TimeUnit.SECONDS)).isEqualTo(FlashSaleStock.Reservation.INACTIVE);
+    }
+
+    @Test
+    void rolledBackEndReopensTheCounter() throws Exception {
+        assertThat(close(0)).isTrue();
+
+        CompletableFuture<FlashSaleStock.Reservation> checkout = CompletableFuture.supplyAsync(() -> {
+            awaitOpen();
+            return stock.reserve(INSTRUMENT, 1);
+        });
+        stock.reopen(INSTRUMENT);
+
+        assertThat(checkout.get(5, TimeUnit.SECONDS)).isEqualTo(FlashSaleStock.Reservation.RESERVED);
+    }
+
+    @Test
+    void closeGivesUpAndReopensWhenCheckoutsDoNotFinish() {
+        assertThat(stock.reserve(INSTRUMENT, 1)).isEqualTo(FlashSaleStock.Reservation.RESERVED);
+
+        assertThat(close(100)).isFalse();
+        assertThat(stock.reserve(INSTRUMENT, 1)).isEqualTo(FlashSaleStock.Reservation.RESERVED);
+    }
+
+    @Test
+    void rolledBackReservationIsGivenBackBeforeTheFold() {
+        assertThat(stock.reserve(INSTRUMENT, 10)).isEqualTo(FlashSaleStock.Reservation.RESERVED);
+        assertThat(stock.isSoldOut(INSTRUMENT)).isTrue();
+
+        stock.release(INSTRUMENT, 10); // The checkout rolled back
+        stock.finished(INSTRUMENT);
+
+        assertThat(close(0)).isTrue();
+        assertThat(stock.isSoldOut(INSTRUMENT)).isFalse();
+    }
+
+    private boolean close(long timeoutMs) {
+        try {
+            return stock.close(INSTRUMENT, timeoutMs);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitOpen() {
+        try {
+            stock.awaitOpen(INSTRUMENT);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.IdempotencyStatus;
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import com.musical_instrument_shop.core.exceptions.AppServerException;
+import com.musical_instrument_shop.core.idempotency.IdempotencyClaim;
+import com.musical_instrument_shop.dto.OrderInsertDTO;
+import com.musical_instrument_shop.dto.OrderItemInsertDTO;
+import com.musical_instrument_shop.dto.OrderReadOnlyDTO;
+import com.musical_instrument_shop.model.IdempotencyKey;
+import com.musical_instrument_shop.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Claims are committed outside any transaction, so the test runs without one: every claim, completion and release
+ * is visible to the next call exactly as it would be to a concurrent duplicate request.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.idempotency.wait-ms=5000"
+})
+@Import({IdempotencyService.class, IdempotencyServiceTest.JsonConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    private static final Long USER_ID = 7L;
+    private static final String KEY = "checkout-7f3a";
+
+    @TestConfiguration
+    static class JsonConfig {
+
+        @Bean
+        JsonMapper jsonMapper() {
+            return JsonMapper.builder().build();
+        }
+    }
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @AfterEach
+    void deleteAll() {
+        idempotencyKeyRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void duplicateAfterCompletionReplaysStoredResponse() throws Exception {
+        IdempotencyClaim first = idempotencyService.claim(KEY, order(line(1L, 2)));
+        assertThat(first.isReplay()).isFalse();
+        idempotencyService.complete(first, response(42L));
+
+        IdempotencyClaim duplicate = idempotencyService.claim(KEY, order(line(1L, 2)));
+
+        assertThat(duplicate.isReplay()).isTrue();
+        assertThat(duplicate.replay().id()).isEqualTo(42L);
+        assertThat(duplicate.replay().totalAmount()).isEqualByComparingTo("2000");
+        assertThat(idempotencyKeyRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void sameCartInAnotherItemOrderIsTheSameRequest() throws Exception {
+        IdempotencyClaim first = idempotencyService.claim(KEY, order(line(1L, 2), line(2L, 1)));
+        idempotencyService.complete(first, response(42L));
+
+        assertThat(idempotencyService.claim(KEY, order(line(2L, 1), line(1L, 2))).isReplay()).isTrue();
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() throws Exception {
+        IdempotencyClaim first = idempotencyService.claim(KEY, order(line(1L, 2)));
+        idempotencyService.complete(first, response(42L));
+
+        assertThatThrownBy(() -> idempotencyService.claim(KEY, order(line(1L, 3))))
+                .isInstanceOf(AppObjectInvalidArgumentException.class)
+                .hasMessageContaining("different order");
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForFirstRequestAndReplaysIt() throws Exception {
+        IdempotencyClaim first = idempotencyService.claim(KEY, order(line(1L, 2)));
+
+        CompletableFuture<IdempotencyClaim> duplicate = CompletableFuture.supplyAsync(() -> {
+            try {
+                return idempotencyService.claim(KEY, order(line(1L, 2)));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Still polling: the first request has not completed its claim
+        Thread.sleep(300);
+        assertThat(duplicate).isNotDone();
+
+        idempotencyService.complete(first, response(42L));
+
+        IdempotencyClaim replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertThat(replayed.isReplay()).isTrue();
+        assertThat(replayed.replay().id()).isEqualTo(42L);
+    }
+
+    @Test
+    void releasedClaimAfterFailedOrderCanBeRetried() throws Exception {
+        IdempotencyClaim first = idempotencyService.claim(KEY, order(line(1L, 2)));
+
+        // The order failed: the controller releases the claim instead of completing it
+        idempotencyService.release(first);
+        assertThat(idempotencyKeyRepository.count()).isZero();
+
+        IdempotencyClaim retry = idempotencyService.claim(KEY, order(line(1L, 2)));
+        assertThat(retry.isReplay()).isFalse();
+        assertThat(retry.id()).isNotEqualTo(first.id());
+    }
+
+    @Test
+    void expiredInProgressClaimIsTakenOverAndCannotBeCompleted() throws Exception {
+        IdempotencyClaim crashed = idempotencyService.claim(KEY, order(line(1L, 2)));
+        IdempotencyKey stored = idempotencyKeyRepository.findById(crashed.id()).orElseThrow();
+        stored.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        idempotencyKeyRepository.save(stored);
+
+        IdempotencyClaim retry = idempotencyService.claim(KEY, order(line(1L, 2)));
+
+        assertThat(retry.isReplay()).isFalse();
+        assertThat(retry.id()).isNotEqualTo(crashed.id());
+        assertThat(idempotencyKeyRepository.findById(retry.id()).orElseThrow().getStatus()).isEqualTo(IdempotencyStatus.IN_PROGRESS);
+        // The request that lost its claim cannot store a response over the retry's
+        assertThatThrownBy(() -> idempotencyService.complete(crashed, response(41L)))
+                .isInstanceOf(AppServerException.class);
+    }
+
+    private static OrderInsertDTO order(OrderItemInsertDTO... items) {
+        return OrderInsertDTO.builder().userId(USER_ID).items(Set.of(items)).build();
+    }
+
+    private static OrderItemInsertDTO line(Long instrumentId, int quantity) {
+        return OrderItemInsertDTO.builder().instrumentId(instrumentId).quantity(quantity).build();
+    }
+
+    private static OrderReadOnlyDTO response(Long orderId) {
+        return OrderReadOnlyDTO.builder()
+                .id(orderId)
+                .userId(USER_ID)
+                .username("buyer")
+                .orderDate(LocalDateTime.now())
+                .totalAmount(BigDecimal.valueOf(2000))
+                .status(OrderStatus.PENDING)
+                .items(Set.of())
+                .build();
+    }
+}
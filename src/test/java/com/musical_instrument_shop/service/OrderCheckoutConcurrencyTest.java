@@ -0,0 +1,229 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.Role;
+import com.musical_instrument_shop.core.exceptions.AppObjectInvalidArgumentException;
+import com.musical_instrument_shop.dto.OrderInsertDTO;
+import com.musical_instrument_shop.dto.OrderItemInsertDTO;
+import com.musical_instrument_shop.mapper.Mapper;
+import com.musical_instrument_shop.model.Brand;
+import com.musical_instrument_shop.model.Category;
+import com.musical_instrument_shop.model.Instrument;
+import com.musical_instrument_shop.model.User;
+import com.musical_instrument_shop.repository.BrandRepository;
+import com.musical_instrument_shop.repository.CategoryRepository;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import com.musical_instrument_shop.repository.OrderItemRepository;
+import com.musical_instrument_shop.repository.OrderRepository;
+import com.musical_instrument_shop.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checkouts decrement stock with one conditional multi-row update: concurrent orders on a hot instrument must
+ * neither oversell nor lose an update, and a cart with one short line must leave every row untouched.
+ * Runs on H2 in MySQL mode with lower-case names, so the native stock update runs as written.
+ */
+@DataJpaTest(properties = {
+        "spring.test.database.replace=none",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:checkout;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({OrderService.class, Mapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderCheckoutConcurrencyTest {
+
+    private static final int STOCK = 10;
+    private static final int BUYERS = 25;
+
+    @MockitoBean
+    private FlashSaleService flashSaleService;
+
+    @MockitoBean
+    private InventoryService inventoryService;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private OrderTransitionService orderTransitionService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private InstrumentRepository instrumentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    private Long userId;
+    private Category category;
+    private Brand brand;
+
+    @BeforeEach
+    void seedCatalog() {
+        User user = new User();
+        user.setUsername("buyer");
+        user.setEmail("buyer@example.com");
+        user.setPassword("secret");
+        user.setFirstname("Test");
+        user.setLastname("Buyer");
+        user.setRole(Role.ROLE_USER);
+        userId = userRepository.save(user).getId();
+
+        Category newCategory = new Category();
+        newCategory.setName("Guitars");
+        category = categoryRepository.save(newCategory);
+        Brand newBrand = new Brand();
+        newBrand.setName("Gibson");
+        brand = brandRepository.save(newBrand);
+    }
+
+    @AfterEach
+    void deleteAll() {
+        orderItemRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        instrumentRepository.deleteAllInBatch();
+        brandRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentCheckoutsOnHotInstrumentNeverOversell() throws Exception {
+        Long hot = instrument("Les Paul", STOCK);
+
+        List<Callable<Boolean>> checkouts = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            checkouts.add(() -> {
+                try {
+                    orderService.saveOrder(order(line(hot, 1)));
+                    return true;
+                } catch (AppObjectInvalidArgumentException e) {
+                    return false; // Sold out
+                }
+            });
+        }
+        List<Boolean> outcomes = runTogether(checkouts);
+
+        long sold = outcomes.stream().filter(Boolean::booleanValue).count();
+        assertThat(sold).isEqualTo(STOCK);
+        assertThat(stockOf(hot)).isZero();
+        assertThat(orderRepository.count()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void concurrentMultiUnitCheckoutsLoseNoUpdate() throws Exception {
+        Long hot = instrument("Les Paul", 100);
+
+        List<Callable<Boolean>> checkouts = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            checkouts.add(() -> {
+                orderService.saveOrder(order(line(hot, 3)));
+                return true;
+            });
+        }
+        runTogether(checkouts);
+
+        // Every committed order took its units: nothing was overwritten by a stale read
+        assertThat(stockOf(hot)).isEqualTo(100 - 3 * BUYERS);
+        assertThat(orderRepository.count()).isEqualTo(BUYERS);
+    }
+
+    @Test
+    void oneShortLineRollsBackTheWholeCart() {
+        Long plenty = instrument("Stratocaster", 5);
+        Long scarce = instrument("SG", 1);
+
+        assertThatThrownBy(() -> orderService.saveOrder(order(line(plenty, 2), line(scarce, 3))))
+                .isInstanceOf(AppObjectInvalidArgumentException.class)
+                .hasMessageContaining("SG");
+
+        assertThat(stockOf(plenty)).isEqualTo(5);
+        assertThat(stockOf(scarce)).isEqualTo(1);
+        assertThat(orderRepository.count()).isZero();
+    }
+
+    private Long instrument(String name, int stock) {
+        Instrument instrument = new Instrument();
+        instrument.setName(name);
+        instrument.setPrice(BigDecimal.valueOf(1000));
+        instrument.setStock(stock);
+        instrument.setCategory(category);
+        instrument.setBrand(brand);
+        return instrumentRepository.save(instrument).getId();
+    }
+
+    private int stockOf(Long instrumentId) {
+        return instrumentRepository.findStockById(instrumentId).orElseThrow();
+    }
+
+    private OrderInsertDTO order(OrderItemInsertDTO... items) {
+        return OrderInsertDTO.builder().userId(userId).items(Set.of(items)).build();
+    }
+
+    private static OrderItemInsertDTO line(Long instrumentId, int quantity) {
+        return OrderItemInsertDTO.builder().instrumentId(instrumentId).quantity(quantity).build();
+    }
+
+    // Releases all tasks at once and waits for every one of them
+    private static <T> List<T> runTogether(List<Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) results.add(future.get());
+            return results;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.enums.Role;
+import com.musical_instrument_shop.model.Order;
+import com.musical_instrument_shop.model.User;
+import com.musical_instrument_shop.repository.OrderRepository;
+import com.musical_instrument_shop.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The expiry job walks stale PENDING orders by (order_date, id) in chunks: orders sharing one order_date must be
+ * neither skipped nor visited twice across chunk boundaries, and orders a picker leased or another transaction locked
+ * must be left for a later run and counted as skipped.
+ * Runs on H2 in MySQL mode with lower-case names, so the native "for update skip locked" select runs as written;
+ * the scheduled run is pushed out of the test so only the explicit runs below touch the orders.
+ */
+@DataJpaTest(properties = {
+        "spring.test.database.replace=none",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:expiry;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.orders.expiry.ttl-minutes=60",
+        "app.orders.expiry.chunk-size=2",
+        "app.orders.expiry.pause-ms=0",
+        "app.orders.expiry.interval-ms=3600000"
+})
+@Import({OrderExpiryService.class, OrderTransitionService.class, OrderExpiryServiceTest.MetricsConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExpiryServiceTest {
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private InventoryService inventoryService;
+
+    @MockitoBean
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private OrderExpiryService orderExpiryService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+    private LocalDateTime stale;
+
+    @BeforeEach
+    void seedUser() {
+        User newUser = new User();
+        newUser.setUsername("buyer");
+        newUser.setEmail("buyer@example.com");
+        newUser.setPassword("secret");
+        newUser.setFirstname("Test");
+        newUser.setLastname("Buyer");
+        newUser.setRole(Role.ROLE_USER);
+        user = userRepository.save(newUser);
+        stale = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @AfterEach
+    void deleteAll() {
+        orderRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void keysetWalkVisitsEveryOrderSharingOneOrderDate() {
+        // Five stale orders on one timestamp span three chunks of two; only the id breaks the ties
+        List<Long> sameDate = new ArrayList<>();
+        for (int i = 0; i < 5; i++) sameDate.add(order(OrderStatus.PENDING, stale));
+        Long older = order(OrderStatus.PENDING, stale.minusMinutes(5));
+        Long fresh = order(OrderStatus.PENDING, LocalDateTime.now());
+        Long confirmed = order(OrderStatus.CONFIRMED, stale);
+        double expiredBefore = count("orders.expiry.expired");
+        double skippedBefore = count("orders.expiry.skipped");
+        double chunksBefore = count("orders.expiry.chunks");
+
+        orderExpiryService.expireStaleOrders();
+
+        assertThat(sameDate).allSatisfy(id -> assertThat(statusOf(id)).isEqualTo(OrderStatus.CANCELLED));
+        assertThat(statusOf(older)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(statusOf(fresh)).isEqualTo(OrderStatus.PENDING);
+        assertThat(statusOf(confirmed)).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(count("orders.expiry.expired") - expiredBefore).isEqualTo(6);
+        assertThat(count("orders.expiry.skipped") - skippedBefore).isZero();
+        assertThat(count("orders.expiry.chunks") - chunksBefore).isEqualTo(3);
+        assertThat(meterRegistry.get("orders.expiry.run").timer().count()).isPositive();
+    }
+
+    @Test
+    void leasedAndLockedOrdersAreSkippedAndLeftForTheNextRun() throws Exception {
+        Long leased = order(OrderStatus.PENDING, stale);
+        lease(leased, LocalDateTime.now().plusMinutes(5));
+        Long leaseExpired = order(OrderStatus.PENDING, stale);
+        lease(leaseExpired, LocalDateTime.now().minusMinutes(5));
+        Long locked = order(OrderStatus.PENDING, stale);
+        double expiredBefore = count("orders.expiry.expired");
+        double skippedBefore = count("orders.expiry.skipped");
+
+        // Another transaction (a checkout or a bulk change) holds the row lock for the whole run
+        CountDownLatch lockHeld = new CountDownLatch(1);
+        CountDownLatch runFinished = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            orderRepository.findForUpdateById(locked).orElseThrow();
+            lockHeld.countDown();
+            try {
+                runFinished.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(lockHeld.await(10, TimeUnit.SECONDS)).isTrue();
+        try {
+            orderExpiryService.expireStaleOrders();
+        } finally {
+            runFinished.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(statusOf(leased)).isEqualTo(OrderStatus.PENDING);
+        assertThat(statusOf(leaseExpired)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(statusOf(locked)).isEqualTo(OrderStatus.PENDING);
+        assertThat(count("orders.expiry.expired") - expiredBefore).isEqualTo(1);
+        assertThat(count("orders.expiry.skipped") - skippedBefore).isEqualTo(2);
+
+        // The lock is gone, so the next run picks the order up
+        orderExpiryService.expireStaleOrders();
+        assertThat(statusOf(locked)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(statusOf(leased)).isEqualTo(OrderStatus.PENDING);
+    }
+
+    private Long order(OrderStatus status, LocalDateTime orderDate) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(orderDate);
+        order.setStatus(status);
+        order.setTotalAmount(BigDecimal.ZERO);
+        return orderRepository.save(order).getId();
+    }
+
+    private void lease(Long orderId, LocalDateTime leaseExpiresAt) {
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        order.setClaimedBy("picker-1");
+        order.setLeaseExpiresAt(leaseExpiresAt);
+        orderRepository.save(order);
+    }
+
+    private OrderStatus statusOf(Long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().getStatus();
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
@@ -0,0 +1,211 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.enums.Role;
+import com.musical_instrument_shop.mapper.Mapper;
+import com.musical_instrument_shop.model.Brand;
+import com.musical_instrument_shop.model.Category;
+import com.musical_instrument_shop.model.Instrument;
+import com.musical_instrument_shop.model.Order;
+import com.musical_instrument_shop.model.OrderItem;
+import com.musical_instrument_shop.model.User;
+import com.musical_instrument_shop.repository.BrandRepository;
+import com.musical_instrument_shop.repository.CategoryRepository;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import com.musical_instrument_shop.repository.OrderItemRepository;
+import com.musical_instrument_shop.repository.OrderRepository;
+import com.musical_instrument_shop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Order listings must not issue per-order or per-item selects: the statement count of a page is the same for
+ * 5 orders as for 20. Runs without a test transaction so nothing is served from a shared persistence context.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({OrderService.class, Mapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderQueryCountTest {
+
+    private static final int ORDERS = 40;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int INSTRUMENTS = 10;
+
+    @MockitoBean
+    private FlashSaleService flashSaleService;
+
+    @MockitoBean
+    private InventoryService inventoryService;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private OrderTransitionService orderTransitionService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private InstrumentRepository instrumentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void seedOrders() {
+        User user = new User();
+        user.setUsername("buyer");
+        user.setEmail("buyer@example.com");
+        user.setPassword("secret");
+        user.setFirstname("Test");
+        user.setLastname("Buyer");
+        user.setRole(Role.ROLE_USER);
+        user = userRepository.save(user);
+        userId = user.getId();
+
+        // A category and brand per instrument, so eager to-one loading would show up as extra selects
+        List<Instrument> instruments = new ArrayList<>();
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            Category category = new Category();
+            category.setName("Category " + i);
+            Brand brand = new Brand();
+            brand.setName("Brand " + i);
+
+            Instrument instrument = new Instrument();
+            instrument.setName("Instrument " + i);
+            instrument.setPrice(BigDecimal.valueOf(100 + i));
+            instrument.setStock(50);
+            instrument.setCategory(categoryRepository.save(category));
+            instrument.setBrand(brandRepository.save(brand));
+            instruments.add(instrumentRepository.save(instrument));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (int o = 0; o < ORDERS; o++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setOrderDate(LocalDateTime.now().minusMinutes(o));
+            order.setStatus(OrderStatus.PENDING);
+            order.setTotalAmount(BigDecimal.ZERO);
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                Instrument instrument = instruments.get((o + i) % INSTRUMENTS);
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setInstrument(instrument);
+                item.setQuantity(1);
+                item.setPriceAtPurchase(instrument.getPrice());
+                order.getItems().add(item);
+            }
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+    }
+
+    @AfterEach
+    void deleteOrders() {
+        orderItemRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        instrumentRepository.deleteAllInBatch();
+        brandRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void paginatedOrdersUseFixedNumberOfStatements() {
+        long small = statements(() -> orderService.getPaginatedOrders(PageRequest.of(0, 5)));
+        long large = statements(() -> orderService.getPaginatedOrders(PageRequest.of(0, 20)));
+
+        assertThat(large).isEqualTo(small);
+        assertThat(small).as("count, orders with their user, items").isEqualTo(3);
+    }
+
+    @Test
+    void slicedOrdersUseFixedNumberOfStatements() {
+        long small = statements(() -> orderService.getSlicedOrders(PageRequest.of(0, 5)));
+        long large = statements(() -> orderService.getSlicedOrders(PageRequest.of(0, 20)));
+
+        assertThat(large).isEqualTo(small);
+        assertThat(small).as("orders with their user, items").isEqualTo(2);
+    }
+
+    @Test
+    void ordersByUserUseFixedNumberOfStatements() {
+        Pageable small = PageRequest.of(0, 5);
+        Pageable large = PageRequest.of(0, 20);
+
+        long smallStatements = statements(() -> ordersByUser(small));
+        long largeStatements = statements(() -> ordersByUser(large));
+
+        assertThat(largeStatements).isEqualTo(smallStatements);
+    }
+
+    @Test
+    void pagedOrdersCarryTheirItems() {
+        var page = orderService.getPaginatedOrders(PageRequest.of(0, 20));
+
+        assertThat(page.getData()).hasSize(20)
+                .allSatisfy(order -> {
+                    assertThat(order.username()).isEqualTo("buyer");
+                    assertThat(order.items()).hasSize(ITEMS_PER_ORDER)
+                            .allSatisfy(item -> assertThat(item.instrumentName()).startsWith("Instrument "));
+                });
+    }
+
+    private Object ordersByUser(Pageable pageable) {
+        try {
+            return orderService.getOrdersByUser(userId, pageable);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long statements(Supplier<?> call) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        call.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
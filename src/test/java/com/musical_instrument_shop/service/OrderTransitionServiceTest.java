@@ -0,0 +1,235 @@
+package com.musical_instrument_shop.service;
+
+import com.musical_instrument_shop.core.enums.MovementType;
+import com.musical_instrument_shop.core.enums.OrderStatus;
+import com.musical_instrument_shop.core.enums.Role;
+import com.musical_instrument_shop.core.enums.TransitionOutcome;
+import com.musical_instrument_shop.dto.OrderStatusTransitionDTO;
+import com.musical_instrument_shop.dto.OrderTransitionResultDTO;
+import com.musical_instrument_shop.mapper.Mapper;
+import com.musical_instrument_shop.model.Brand;
+import com.musical_instrument_shop.model.Category;
+import com.musical_instrument_shop.model.Instrument;
+import com.musical_instrument_shop.model.InventoryMovement;
+import com.musical_instrument_shop.model.Order;
+import com.musical_instrument_shop.model.OrderItem;
+import com.musical_instrument_shop.model.User;
+import com.musical_instrument_shop.repository.BrandRepository;
+import com.musical_instrument_shop.repository.CategoryRepository;
+import com.musical_instrument_shop.repository.InstrumentRepository;
+import com.musical_instrument_shop.repository.InventoryMovementRepository;
+import com.musical_instrument_shop.repository.OrderItemRepository;
+import com.musical_instrument_shop.repository.OrderRepository;
+import com.musical_instrument_shop.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Bulk status changes report one outcome per order id, move only the orders the state machine allows, give cancelled
+ * units back through the ledger, and keep the chunks that succeeded when a later chunk fails.
+ * Runs on H2 in MySQL mode with lower-case names, so the native locking selects run as written. The scheduled fold
+ * is pushed out of the test, so the cancellation rows are still unfolded when they are checked.
+ */
+@DataJpaTest(properties = {
+        "spring.test.database.replace=none",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:transition;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.orders.bulk-chunk-size=2",
+        "app.inventory.fold-ms=3600000"
+})
+@Import({OrderService.class, OrderTransitionService.class, InventoryService.class, Mapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderTransitionServiceTest {
+
+    @MockitoBean
+    private FlashSaleService flashSaleService;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoSpyBean
+    private OrderTransitionService orderTransitionService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private InstrumentRepository instrumentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private InventoryMovementRepository movementRepository;
+
+    private User user;
+    private Instrument guitar;
+    private Instrument amp;
+
+    @BeforeEach
+    void seedCatalog() {
+        User newUser = new User();
+        newUser.setUsername("buyer");
+        newUser.setEmail("buyer@example.com");
+        newUser.setPassword("secret");
+        newUser.setFirstname("Test");
+        newUser.setLastname("Buyer");
+        newUser.setRole(Role.ROLE_USER);
+        user = userRepository.save(newUser);
+
+        Category category = new Category();
+        category.setName("Guitars");
+        category = categoryRepository.save(category);
+        Brand brand = new Brand();
+        brand.setName("Fender");
+        brand = brandRepository.save(brand);
+        guitar = instrument("Stratocaster", category, brand);
+        amp = instrument("Twin Reverb", category, brand);
+    }
+
+    @AfterEach
+    void deleteAll() {
+        movementRepository.deleteAllInBatch();
+        orderItemRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        instrumentRepository.deleteAllInBatch();
+        brandRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void everyIdGetsItsOwnOutcome() {
+        Long pending = order(OrderStatus.PENDING, Map.of(guitar, 1));
+        Long confirmed = order(OrderStatus.CONFIRMED, Map.of(guitar, 1));
+        Long delivered = order(OrderStatus.DELIVERED, Map.of(guitar, 1));
+        Long missing = delivered + 1000;
+
+        List<OrderTransitionResultDTO> results = orderTransitionService.transition(
+                List.of(pending, confirmed, delivered, missing), OrderStatus.CONFIRMED);
+
+        assertThat(results)
+                .extracting(OrderTransitionResultDTO::id, OrderTransitionResultDTO::previousStatus, OrderTransitionResultDTO::outcome)
+                .containsExactly(
+                        tuple(pending, OrderStatus.PENDING, TransitionOutcome.UPDATED),
+                        tuple(confirmed, OrderStatus.CONFIRMED, TransitionOutcome.UNCHANGED),
+                        tuple(delivered, OrderStatus.DELIVERED, TransitionOutcome.INVALID_TRANSITION),
+                        tuple(missing, null, TransitionOutcome.NOT_FOUND));
+        assertThat(statusOf(pending)).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(statusOf(delivered)).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(movementRepository.count()).isZero();
+    }
+
+    @Test
+    void cancellationGivesUnitsBackThroughTheLedger() {
+        Long cancelled = order(OrderStatus.CONFIRMED, Map.of(guitar, 2, amp, 1));
+        Long untouched = order(OrderStatus.SHIPPED, Map.of(guitar, 4));
+
+        List<OrderTransitionResultDTO> results = orderTransitionService.transition(List.of(cancelled, untouched), OrderStatus.CANCELLED);
+
+        assertThat(results).extracting(OrderTransitionResultDTO::outcome)
+                .containsExactly(TransitionOutcome.UPDATED, TransitionOutcome.INVALID_TRANSITION);
+        assertThat(movementRepository.findAll())
+                .extracting(InventoryMovement::getOrderId, InventoryMovement::getInstrumentId, InventoryMovement::getType,
+                        InventoryMovement::getQuantity, InventoryMovement::isFolded)
+                .containsExactlyInAnyOrder(
+                        tuple(cancelled, guitar.getId(), MovementType.ORDER_CANCELLATION, 2, false),
+                        tuple(cancelled, amp.getId(), MovementType.ORDER_CANCELLATION, 1, false));
+        // Folded into the snapshot later, off the cancellation path
+        assertThat(instrumentRepository.findStockById(guitar.getId())).contains(10);
+        verify(flashSaleService).release(Map.of(guitar.getId(), 2, amp.getId(), 1));
+    }
+
+    @Test
+    void failedChunkIsReportedWithoutUndoingTheOthers() {
+        Long first = order(OrderStatus.PENDING, Map.of(guitar, 1));
+        Long second = order(OrderStatus.PENDING, Map.of(guitar, 1));
+        Long third = order(OrderStatus.PENDING, Map.of(amp, 1));
+        Long fourth = order(OrderStatus.PENDING, Map.of(amp, 1));
+        doThrow(new IllegalStateException("Connection lost"))
+                .when(orderTransitionService).transition(eq(List.of(third, fourth)), any());
+
+        List<OrderTransitionResultDTO> results = orderService.transitionOrders(OrderStatusTransitionDTO.builder()
+                .ids(Set.of(fourth, second, third, first))
+                .status(OrderStatus.CONFIRMED)
+                .build());
+
+        assertThat(results)
+                .extracting(OrderTransitionResultDTO::id, OrderTransitionResultDTO::outcome)
+                .containsExactly(
+                        tuple(first, TransitionOutcome.UPDATED),
+                        tuple(second, TransitionOutcome.UPDATED),
+                        tuple(third, TransitionOutcome.FAILED),
+                        tuple(fourth, TransitionOutcome.FAILED));
+        assertThat(statusOf(second)).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(statusOf(third)).isEqualTo(OrderStatus.PENDING);
+    }
+
+    private Instrument instrument(String name, Category category, Brand brand) {
+        Instrument instrument = new Instrument();
+        instrument.setName(name);
+        instrument.setPrice(BigDecimal.valueOf(1000));
+        instrument.setStock(10);
+        instrument.setCategory(category);
+        instrument.setBrand(brand);
+        return instrumentRepository.save(instrument);
+    }
+
+    private Long order(OrderStatus status, Map<Instrument, Integer> lines) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(LocalDateTime.now());
+        order.setStatus(status);
+        order.setTotalAmount(BigDecimal.ZERO);
+        lines.forEach((instrument, quantity) -> {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setInstrument(instrument);
+            item.setQuantity(quantity);
+            item.setPriceAtPurchase(instrument.getPrice());
+            order.getItems().add(item);
+        });
+        return orderRepository.save(order).getId();
+    }
+
+    private OrderStatus statusOf(Long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().getStatus();
+    }
+}